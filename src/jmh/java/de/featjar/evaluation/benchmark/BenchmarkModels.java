@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.benchmark;
+
+import de.featjar.base.data.Pair;
+import de.featjar.base.io.IO;
+import de.featjar.formula.io.HiddenFormulaFormats;
+import de.featjar.formula.structure.formula.IFormula;
+import de.featjar.formula.structure.formula.connective.BiImplies;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * Loads the sample models bundled with the benchmarks.
+ */
+public final class BenchmarkModels {
+
+    private BenchmarkModels() {}
+
+    public static Pair<IFormula, Pair<List<String>, List<BiImplies>>> load(String name) throws IOException {
+        String resource = "/models/" + name + ".xml";
+        Path file = Files.createTempFile(name, ".xml");
+        try (InputStream in = BenchmarkModels.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("Unknown benchmark model: " + name);
+            }
+            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+            return IO.load(file, HiddenFormulaFormats.getInstance()).orElseThrow();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.benchmark;
+
+import de.featjar.base.FeatJAR;
+import de.featjar.base.computation.Computations;
+import de.featjar.base.computation.IComputation;
+import de.featjar.base.data.Pair;
+import de.featjar.formula.analysis.VariableMap;
+import de.featjar.formula.analysis.bool.BooleanAssignment;
+import de.featjar.formula.analysis.bool.BooleanClause;
+import de.featjar.formula.analysis.bool.BooleanClauseList;
+import de.featjar.formula.analysis.bool.ComputeBooleanRepresentation;
+import de.featjar.formula.analysis.bool.IBooleanRepresentation;
+import de.featjar.formula.analysis.mig.solver.MIGBuilder;
+import de.featjar.formula.analysis.mig.solver.ModalImplicationGraph;
+import de.featjar.formula.analysis.sat4j.indeterminate.ComputeIndeterminate;
+import de.featjar.formula.analysis.sat4j.indeterminate.ComputeIndeterminateSlicing;
+import de.featjar.formula.analysis.sat4j.indeterminate.IndeterminatePreprocess;
+import de.featjar.formula.analysis.sat4j.indeterminate.PreprocessIff;
+import de.featjar.formula.analysis.sat4j.indeterminate.PreprocessIffComp;
+import de.featjar.formula.analysis.sat4j.indeterminate.PreprocessIffCompSort;
+import de.featjar.formula.analysis.sat4j.indeterminate.PreprocessIffSort;
+import de.featjar.formula.analysis.sat4j.indeterminate.PreprocessIffV2;
+import de.featjar.formula.analysis.sat4j.indeterminate.PreprocessImGraph;
+import de.featjar.formula.structure.formula.IFormula;
+import de.featjar.formula.structure.formula.connective.BiImplies;
+import de.featjar.formula.transformer.ComputeCNFFormula;
+import de.featjar.formula.transformer.ComputeNNFFormula;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the analyses compared by {@link de.featjar.evaluation.IndeterminateEvaluation} on the bundled sample
+ * models. The model is transformed once per trial, each benchmark only runs the analysis itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class IndeterminateBenchmark {
+
+    @Param({"small", "medium", "large"})
+    public String model;
+
+    private IComputation<IFormula> formula;
+    private IComputation<BooleanClauseList> clauses;
+    private VariableMap variableMap;
+    private BooleanAssignment hiddenVariables;
+    private ModalImplicationGraph modalImplicationGraph;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        FeatJAR.initialize();
+        Pair<IFormula, Pair<List<String>, List<BiImplies>>> loadedModel = BenchmarkModels.load(model);
+        formula = Computations.of(loadedModel.getKey());
+        ComputeBooleanRepresentation<IFormula, IBooleanRepresentation> cnf = formula.map(ComputeNNFFormula::new)
+                .map(ComputeCNFFormula::new)
+                .map(ComputeBooleanRepresentation::new);
+        BooleanClauseList clauseList =
+                cnf.map(Computations::getKey).cast(BooleanClauseList.class).compute();
+        List<BooleanClause> distinctClauses =
+                clauseList.stream().distinct().map(BooleanClause::new).collect(Collectors.toList());
+        clauses = Computations.of(new BooleanClauseList(distinctClauses, clauseList.getVariableCount()));
+        variableMap = cnf.map(Computations::getValue).compute();
+        hiddenVariables = new BooleanAssignment(loadedModel.getValue().getKey().stream()
+                .mapToInt(x -> variableMap.get(x).get())
+                .toArray());
+        modalImplicationGraph = clauses.map(MIGBuilder::new).compute();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        FeatJAR.deinitialize();
+    }
+
+    private BooleanAssignment preprocess(IndeterminatePreprocess preprocess) {
+        return preprocess
+                .set(IndeterminatePreprocess.VARIABLE_MAP, variableMap)
+                .set(IndeterminatePreprocess.VARIABLES_OF_INTEREST, hiddenVariables)
+                .compute();
+    }
+
+    @Benchmark
+    public Object nnfToCnf() {
+        ComputeBooleanRepresentation<IFormula, IBooleanRepresentation> cnf = formula.map(ComputeNNFFormula::new)
+                .map(ComputeCNFFormula::new)
+                .map(ComputeBooleanRepresentation::new);
+        return cnf.compute();
+    }
+
+    @Benchmark
+    public ModalImplicationGraph migBuilder() {
+        return clauses.map(MIGBuilder::new).compute();
+    }
+
+    @Benchmark
+    public BooleanAssignment computeIndeterminate() {
+        return new ComputeIndeterminate(clauses)
+                .set(ComputeIndeterminate.VARIABLES_OF_INTEREST, hiddenVariables)
+                .compute();
+    }
+
+    @Benchmark
+    public BooleanAssignment computeIndeterminateSlicing() {
+        return new ComputeIndeterminateSlicing(clauses)
+                .set(ComputeIndeterminateSlicing.VARIABLES_OF_INTEREST, hiddenVariables)
+                .compute();
+    }
+
+    @Benchmark
+    public BooleanAssignment preprocessIff() {
+        return preprocess(new PreprocessIff(formula));
+    }
+
+    @Benchmark
+    public BooleanAssignment preprocessIffV2() {
+        return preprocess(new PreprocessIffV2(formula));
+    }
+
+    @Benchmark
+    public BooleanAssignment preprocessIffSort() {
+        return preprocess(new PreprocessIffSort(formula));
+    }
+
+    @Benchmark
+    public BooleanAssignment preprocessIffComp() {
+        return preprocess(new PreprocessIffComp(formula));
+    }
+
+    @Benchmark
+    public BooleanAssignment preprocessIffCompSort() {
+        return preprocess(new PreprocessIffCompSort(formula));
+    }
+
+    @Benchmark
+    public BooleanAssignment preprocessImGraph() {
+        return new PreprocessImGraph(Computations.of(modalImplicationGraph))
+                .set(IndeterminatePreprocess.VARIABLES_OF_INTEREST, hiddenVariables)
+                .compute();
+    }
+}
@@ -26,8 +26,28 @@ import de.featjar.base.cli.ListOption;
 import de.featjar.base.cli.Option;
 import de.featjar.base.cli.OptionList;
 import de.featjar.base.cli.RangeOption;
-import de.featjar.base.io.csv.CSVFile;
+import de.featjar.base.data.Pair;
+import de.featjar.base.io.format.IFormatSupplier;
+import de.featjar.evaluation.output.CheckpointJournal;
+import de.featjar.evaluation.output.ForkedResultWriter;
+import de.featjar.evaluation.output.IResultWriter;
+import de.featjar.evaluation.output.ResultSink;
+import de.featjar.evaluation.process.AnalysisExecutor;
+import de.featjar.evaluation.process.Result;
+import de.featjar.evaluation.util.AdaptiveRepetition;
+import de.featjar.evaluation.util.CNFCache;
+import de.featjar.evaluation.util.ClauseArena;
+import de.featjar.evaluation.util.ModelCatalog;
+import de.featjar.evaluation.util.ModelReader;
+import de.featjar.evaluation.util.ModelSource;
 import de.featjar.evaluation.util.OptionCombiner;
+import de.featjar.evaluation.util.ProgressExporter;
+import de.featjar.evaluation.util.ProgressTracker;
+import de.featjar.evaluation.util.Shard;
+import de.featjar.evaluation.util.WorkQueue;
+import de.featjar.formula.analysis.VariableMap;
+import de.featjar.formula.analysis.bool.BooleanClauseList;
+import de.featjar.formula.structure.formula.IFormula;
 import java.io.IOException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
@@ -36,10 +56,18 @@ import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Properties;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * TODO documentation
@@ -61,6 +89,8 @@ public abstract class Evaluator implements ICommand {
     public static final Option<Path> resourcesPathOption = new Option<>("resources", Option.PathParser)
             .setDefaultValue(Path.of("resources"))
             .setValidator(Option.PathValidator);
+    // directory of the caches and the model catalog, defaults to gen in the output directory
+    public static final Option<Path> genPathOption = new Option<>("gen", Option.PathParser);
 
     public static final Option<Long> timeout = new Option<>("timeout", Option.LongParser, Long.MAX_VALUE);
     public static final Option<Long> randomSeed = new Option<>("seed", Option.LongParser);
@@ -69,6 +99,49 @@ public abstract class Evaluator implements ICommand {
     public static final RangeOption systemIterationsOption = new RangeOption("systemIterations");
     public static final RangeOption algorithmIterationsOption = new RangeOption("algorithmIterations");
 
+    public static final Option<Integer> workersOption = new Option<>("workers", Option.IntegerParser, 1);
+    public static final Option<Boolean> resumeOption = new Option<>("resume", Option.BooleanParser, false);
+    public static final Option<String> shardOption = new Option<>("shard", Option.StringParser, "");
+    public static final Option<String> shardStrategyOption =
+            new Option<>("shardStrategy", Option.StringParser, "strided");
+    public static final Option<Boolean> queueOption = new Option<>("queue", Option.BooleanParser, false);
+    public static final Option<Long> queueTimeoutOption = new Option<>("queueTimeout", Option.LongParser, 120L);
+    public static final Option<Long> progressIntervalOption =
+            new Option<>("progressInterval", Option.LongParser, 60L);
+    public static final Option<Integer> progressPortOption =
+            new Option<>("progressPort", Option.IntegerParser, 0);
+    public static final Option<Boolean> binaryResultsOption =
+            new Option<>("binaryResults", Option.BooleanParser, false);
+
+    // logs the standard output of external processes at debug level, which requires decoding all of it
+    public static final Option<Boolean> logProcessOutputOption =
+            new Option<>("logProcessOutput", Option.BooleanParser, false);
+
+    public static final Option<Boolean> cnfCacheOption = new Option<>("cnfCache", Option.BooleanParser, true);
+
+    public static final Option<Boolean> forkedChildOption =
+            new Option<>("forkedChild", Option.BooleanParser, false);
+    // content hash of the input model, passed to forked children instead of building a model catalog
+    public static final Option<String> modelHashOption = new Option<>("modelHash", Option.StringParser, "");
+
+    public static final Option<Integer> prefetchOption = new Option<>("prefetch", Option.IntegerParser, 2);
+
+    public static final Option<Integer> warmupIterationsOption =
+            new Option<>("warmupIterations", Option.IntegerParser, 0);
+    public static final Option<Integer> steadyStateWindowOption =
+            new Option<>("steadyStateWindow", Option.IntegerParser, 0);
+    public static final Option<Double> steadyStateThresholdOption =
+            new Option<>("steadyStateThreshold", Option.DoubleParser, 0.02);
+    // adaptive repetition is disabled if the target precision is 0, it cannot be combined with resume, shard, or queue
+    public static final Option<Double> targetPrecisionOption =
+            new Option<>("targetPrecision", Option.DoubleParser, 0.0);
+    public static final Option<Integer> minRepetitionsOption =
+            new Option<>("minRepetitions", Option.IntegerParser, 6);
+    public static final Option<Integer> maxRepetitionsOption =
+            new Option<>("maxRepetitions", Option.IntegerParser, Integer.MAX_VALUE);
+    public static final Option<Double> confidenceLevelOption =
+            new Option<>("confidenceLevel", Option.DoubleParser, 0.95);
+
     public OptionList optionParser;
     public OptionCombiner optionCombiner;
 
@@ -81,6 +154,22 @@ public abstract class Evaluator implements ICommand {
     public Path tempPath;
     public List<String> systemNames;
     public List<Integer> systemIDs;
+    public CheckpointJournal checkpointJournal;
+    public ResultSink resultSink;
+    public CNFCache cnfCache;
+    public ModelCatalog modelCatalog;
+    public AnalysisExecutor analysisExecutor;
+    public Shard shard;
+    public WorkQueue workQueue;
+    public String workerId;
+    public ProgressTracker cellProgress;
+    public ProgressExporter progressExporter;
+
+    private BitSet systemSelection;
+    private BitSet cellSelection;
+    private List<String> cellVariants = List.of();
+    private final Map<Integer, Long> cellStartTimes = new ConcurrentHashMap<>();
+    private IResultWriter precisionWriter;
 
     @Override
     public List<Option<?>> getOptions() {
@@ -89,11 +178,33 @@ public abstract class Evaluator implements ICommand {
                 OUTPUT_OPTION,
                 modelsPathOption,
                 resourcesPathOption,
+                genPathOption,
                 timeout,
                 randomSeed,
                 systemsOption,
                 systemIterationsOption,
-                algorithmIterationsOption);
+                algorithmIterationsOption,
+                workersOption,
+                resumeOption,
+                shardOption,
+                shardStrategyOption,
+                queueOption,
+                queueTimeoutOption,
+                progressIntervalOption,
+                progressPortOption,
+                binaryResultsOption,
+                logProcessOutputOption,
+                cnfCacheOption,
+                prefetchOption,
+                forkedChildOption,
+                modelHashOption,
+                warmupIterationsOption,
+                steadyStateWindowOption,
+                steadyStateThresholdOption,
+                targetPrecisionOption,
+                minRepetitionsOption,
+                maxRepetitionsOption,
+                confidenceLevelOption);
     }
 
     public OptionList getOptionParser() {
@@ -176,11 +287,28 @@ public abstract class Evaluator implements ICommand {
                 .map(p -> p.getFileName().toString())
                 .sorted()
                 .collect(Collectors.toList());
+        String shardSpecification = getOption(shardOption);
+        if (!shardSpecification.isBlank()) {
+            shard = Shard.parse(shardSpecification, getOption(shardStrategyOption));
+            FeatJAR.log().info("Evaluating shard " + shard);
+        }
+        optionCombiner.setShard(shard);
+        if (getOption(targetPrecisionOption) > 0
+                && (getOption(resumeOption) || shard != null || getOption(queueOption))) {
+            // the stopping rule only sees the iterations measured by this process
+            throw new IllegalArgumentException(
+                    "Adaptive repetition (--targetPrecision) cannot be combined with --resume, --shard, or --queue");
+        }
+        if (getOption(queueOption)) {
+            workerId = WorkQueue.createWorkerId();
+            FeatJAR.log().info("Claiming cells from the shared work queue as worker " + workerId);
+        }
         FeatJAR.log().info("Running " + this.getClass().getSimpleName());
     }
 
     private void updateSubPaths() throws IOException {
         initSubPaths();
+        initCheckpointJournal();
         try {
             setupDirectories();
         } catch (final IOException e) {
@@ -188,15 +316,334 @@ public abstract class Evaluator implements ICommand {
             FeatJAR.log().error(e);
             throw e;
         }
+        resultSink = new ResultSink(csvPath);
+        if (workerId != null) {
+            workQueue = new WorkQueue(
+                    outputPath.resolve("queue").resolve(getClass().getSimpleName()),
+                    workerId,
+                    TimeUnit.SECONDS.toMillis(getOption(queueTimeoutOption)));
+        }
+        analysisExecutor = new AnalysisExecutor(csvPath.resolve("dumps"));
+        resultSink.setColumnarOutput(getOption(binaryResultsOption));
+        if (getOption(cnfCacheOption)) {
+            cnfCache = new CNFCache(genPath.resolve("cnf"));
+        }
+        // forked children get the model hash from their parent, only the parent builds and saves the catalog
+        if (!getOption(forkedChildOption) && modelPath != null && Files.isDirectory(modelPath)) {
+            modelCatalog = ModelCatalog.open(modelPath, "model.xml", getModelCatalogFile());
+            FeatJAR.log().info("Found %d models in %s", modelCatalog.size(), modelPath);
+        }
+        initProgress();
+    }
+
+    private void initProgress() throws IOException {
+        long progressInterval = getOption(progressIntervalOption);
+        int progressPort = getOption(progressPortOption);
+        if (progressInterval <= 0 && progressPort <= 0) {
+            return;
+        }
+        List<Integer> iterations = getOption(algorithmIterationsOption);
+        cellProgress = cellVariants.isEmpty()
+                ? new ProgressTracker(systemNames.size(), iterations.size())
+                : new ProgressTracker(systemNames.size(), iterations.size(), cellVariants.size());
+        if (shard != null) {
+            BitSet selection = new BitSet();
+            for (int i = 0; i < cellProgress.getTotalSize(); i++) {
+                int[] indices = cellProgress.getIndices(i);
+                if (isInShard(systemNames.get(indices[0]), iterations.get(indices[1]))) {
+                    selection.set(i);
+                }
+            }
+            cellProgress.setSelection(selection);
+        }
+        progressExporter = new ProgressExporter(
+                cellProgress,
+                getClass().getSimpleName(),
+                outputPath,
+                "progress-" + csvPath.getFileName(),
+                progressInterval);
+        if (progressPort > 0) {
+            int port = progressExporter.serve(progressPort);
+            FeatJAR.log().info("Serving progress on http://localhost:%d/progress.json and /metrics", port);
+        }
+    }
+
+    /**
+     * Adds the variants of each (system, iteration) cell as a third dimension to the {@link #cellProgress progress}.
+     * Must be called before {@link #run(OptionList)} initializes the progress, for instance in {@link #init()}.
+     */
+    protected void setCellVariants(List<String> variants) {
+        cellVariants = List.copyOf(variants);
+    }
+
+    /**
+     * Returns the index of the given cell in the {@link #cellProgress progress}, or -1 if it is not tracked.
+     */
+    private int getCellIndex(String system, String variant, int iteration) {
+        if (cellProgress == null) {
+            return -1;
+        }
+        int systemIndex = systemNames.indexOf(system);
+        List<Integer> iterations = getOption(algorithmIterationsOption);
+        int iterationIndex = iterations.indexOf(iteration);
+        int variantIndex = cellVariants.isEmpty() ? 0 : cellVariants.indexOf(variant);
+        if (systemIndex < 0 || iterationIndex < 0 || variantIndex < 0) {
+            return -1;
+        }
+        return (systemIndex * iterations.size() + iterationIndex) * Math.max(1, cellVariants.size()) + variantIndex;
     }
 
     protected void initRootPaths() {}
 
     protected void initSubPaths() {
         outputPath = outputRootPath.resolve(readCurrentOutputMarker());
-        csvPath = outputPath.resolve("data").resolve("data-" + getTimeStamp());
+        csvPath = outputPath.resolve("data").resolve(getDataDirectoryName(getTimeStamp()));
         tempPath = outputPath.resolve("temp");
-        genPath = outputPath.resolve("gen");
+        genPath = optionParser.has(genPathOption) ? getOption(genPathOption) : outputPath.resolve("gen");
+    }
+
+    /**
+     * Returns the name of the directory the results are written to. The directories of different shards and queue
+     * workers are distinguished by the {@link Shard#getTag() shard tag} or the worker id, so that they can be merged
+     * afterwards.
+     *
+     * @param stamp identifies the run, usually its start time
+     */
+    protected String getDataDirectoryName(String stamp) {
+        String name = "data-" + stamp;
+        if (shard != null) {
+            name += "-" + shard.getTag();
+        }
+        if (workerId != null) {
+            name += "-worker-" + workerId;
+        }
+        return name;
+    }
+
+    /**
+     * Opens the checkpoint journal of the current data directory. When resuming, the most recent data directory that
+     * already contains a journal of this evaluator is reused instead of a new one.
+     */
+    protected void initCheckpointJournal() throws IOException {
+        final String journalName = getClass().getSimpleName() + ".journal";
+        if (getOption(resumeOption) && !Files.exists(csvPath.resolve(journalName))) {
+            final Path dataPath = csvPath.getParent();
+            if (Files.isDirectory(dataPath)) {
+                try (Stream<Path> dataDirectories = Files.list(dataPath)) {
+                    Optional<Path> lastDataDirectory = dataDirectories
+                            .filter(p -> Files.exists(p.resolve(journalName)))
+                            .filter(p -> isOwnDataDirectory(p.getFileName().toString()))
+                            .max(Comparator.comparing(p -> p.getFileName().toString()));
+                    if (lastDataDirectory.isPresent()) {
+                        csvPath = lastDataDirectory.get();
+                    }
+                }
+            }
+        }
+        checkpointJournal = new CheckpointJournal(csvPath.resolve(journalName));
+        if (checkpointJournal.getCompletedCount() > 0) {
+            FeatJAR.log().info("Resuming %s (%d completed cells)", csvPath, checkpointJournal.getCompletedCount());
+        }
+    }
+
+    private boolean isOwnDataDirectory(String name) {
+        if (workerId != null) {
+            // workers take their cells from the queue and never resume a directory
+            return false;
+        }
+        return shard == null
+                ? !name.contains("-shard-") && !name.contains("-worker-")
+                : name.endsWith("-" + shard.getTag());
+    }
+
+    /**
+     * Returns whether the given system is evaluated by this node. Without a {@link #shardOption shard}, all systems
+     * are.
+     */
+    public synchronized boolean isInShard(String system) {
+        if (shard == null) {
+            return true;
+        }
+        if (systemSelection == null) {
+            systemSelection = shard.select(systemNames.size(), i -> getModelCost(systemNames.get(i)));
+        }
+        int systemIndex = systemNames.indexOf(system);
+        return systemIndex < 0 || systemSelection.get(systemIndex);
+    }
+
+    /**
+     * Returns whether the given iteration of the given system is evaluated by this node. The cells of all systems
+     * and {@link #algorithmIterationsOption algorithm iterations} are distributed among the shards. Without a
+     * {@link #shardOption shard}, all cells are evaluated.
+     */
+    public synchronized boolean isInShard(String system, int iteration) {
+        if (shard == null) {
+            return true;
+        }
+        List<Integer> iterations = getOption(algorithmIterationsOption);
+        if (cellSelection == null) {
+            cellSelection = shard.select(
+                    systemNames.size() * iterations.size(),
+                    i -> getModelCost(systemNames.get(i / iterations.size())));
+        }
+        int systemIndex = systemNames.indexOf(system);
+        int iterationIndex = iterations.indexOf(iteration);
+        return systemIndex < 0
+                || iterationIndex < 0
+                || cellSelection.get(systemIndex * iterations.size() + iterationIndex);
+    }
+
+    /**
+     * Estimates the cost of evaluating a model by the size of its file.
+     */
+    private double getModelCost(String system) {
+        return modelCatalog == null
+                ? 1
+                : modelCatalog.get(system).map(ModelCatalog.Entry::getSize).orElse(1L);
+    }
+
+    /**
+     * Returns whether the given cell does not need to be evaluated. With the {@link #queueOption work queue}, this
+     * includes cells that are done or claimed by other workers.
+     */
+    public boolean isCellCompleted(String system, String variant, int iteration) {
+        if (workQueue != null) {
+            String cell = getCellName(system, variant, iteration);
+            if (workQueue.isDone(cell) || workQueue.isClaimedByOther(cell)) {
+                skipCell(system, variant, iteration);
+                return true;
+            }
+        }
+        if (getOption(resumeOption) && checkpointJournal.isCompleted(system, variant, iteration)) {
+            skipCell(system, variant, iteration);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records that the given cell is not evaluated by this process, for instance because it is done elsewhere or
+     * not needed anymore.
+     */
+    public void skipCell(String system, String variant, int iteration) {
+        int cellIndex = getCellIndex(system, variant, iteration);
+        if (cellIndex >= 0) {
+            cellProgress.skip(cellIndex);
+        }
+    }
+
+    /**
+     * Claims the given cell right before it is evaluated. Always succeeds unless the {@link #queueOption work queue}
+     * is used, in which case the cell may have been claimed or completed by another worker in the meantime.
+     *
+     * @return whether the cell should be evaluated by this process
+     */
+    public boolean claimCell(String system, String variant, int iteration) {
+        boolean claimed = true;
+        if (workQueue != null) {
+            try {
+                claimed = workQueue.claim(getCellName(system, variant, iteration));
+            } catch (final IOException e) {
+                FeatJAR.log().error(e);
+                claimed = false;
+            }
+        }
+        int cellIndex = getCellIndex(system, variant, iteration);
+        if (cellIndex >= 0) {
+            if (claimed) {
+                cellStartTimes.put(cellIndex, System.nanoTime());
+            } else {
+                cellProgress.skip(cellIndex);
+            }
+        }
+        return claimed;
+    }
+
+    private static String getCellName(String system, String variant, int iteration) {
+        return system + ";" + variant + ";" + iteration;
+    }
+
+    /**
+     * Records the cell as completed in the checkpoint journal, as soon as all rows added to the given writer are
+     * written to disk. Does not wait for the write.
+     */
+    public void completeCell(IResultWriter writer, String system, String variant, int iteration) {
+        int cellIndex = getCellIndex(system, variant, iteration);
+        if (cellIndex >= 0) {
+            Long startTime = cellStartTimes.remove(cellIndex);
+            if (startTime != null) {
+                cellProgress.finish(cellIndex, System.nanoTime() - startTime);
+            } else {
+                cellProgress.skip(cellIndex);
+            }
+        }
+        writer.commit(() -> {
+            try {
+                checkpointJournal.markCompleted(system, variant, iteration);
+                if (workQueue != null) {
+                    workQueue.complete(getCellName(system, variant, iteration));
+                }
+            } catch (final IOException e) {
+                FeatJAR.log().error(e);
+            }
+        });
+    }
+
+    /**
+     * Creates the stopping rule for the iterations of one system if a {@link #targetPrecisionOption target
+     * precision} is given. The iterations of the {@link #algorithmIterationsOption range} are then evaluated in
+     * order until the rule is satisfied, or the range or {@link #maxRepetitionsOption maximum} is exhausted.
+     *
+     * @param variants the variants measured in each iteration
+     * @return the stopping rule, or {@code null} if all iterations are to be evaluated
+     */
+    public AdaptiveRepetition createAdaptiveRepetition(String... variants) {
+        double targetPrecision = getOption(targetPrecisionOption);
+        if (targetPrecision <= 0) {
+            return null;
+        }
+        int maximumRepetitions = Math.min(getOption(maxRepetitionsOption), getOption(algorithmIterationsOption).size());
+        return new AdaptiveRepetition(
+                Math.min(getOption(minRepetitionsOption), maximumRepetitions),
+                maximumRepetitions,
+                targetPrecision,
+                getOption(confidenceLevelOption),
+                variants);
+    }
+
+    /**
+     * Writes the precision achieved by the given stopping rule for each of its variants to the {@code precision}
+     * table. The interval and median are in milliseconds, the precision is the interval width divided by the median.
+     */
+    public void writePrecision(String system, AdaptiveRepetition repetition) throws IOException {
+        synchronized (this) {
+            if (precisionWriter == null) {
+                precisionWriter = addCSVWriter(
+                        "precision",
+                        "model",
+                        "variant",
+                        "repetitions",
+                        "median",
+                        "lower",
+                        "upper",
+                        "precision",
+                        "converged");
+            }
+        }
+        String[] variants = repetition.getVariants();
+        for (int i = 0; i < variants.length; i++) {
+            long[] interval = repetition.getConfidenceInterval(i);
+            double precision = repetition.getPrecision(i);
+            precisionWriter.addLine(List.of(
+                    system,
+                    variants[i],
+                    String.valueOf(repetition.getRepetitions()),
+                    toTime(repetition.getMedian(i)),
+                    interval == null ? "" : toTime(interval[0]),
+                    interval == null ? "" : toTime(interval[1]),
+                    Double.isNaN(precision) ? "" : String.format(Locale.ROOT, "%.4f", precision),
+                    String.valueOf(precision <= getOption(targetPrecisionOption))));
+        }
     }
 
     protected void setupDirectories() throws IOException {
@@ -219,6 +666,33 @@ public abstract class Evaluator implements ICommand {
     }
 
     public void dispose() {
+        if (progressExporter != null) {
+            progressExporter.close();
+        }
+        if (analysisExecutor != null) {
+            analysisExecutor.close();
+        }
+        if (resultSink != null) {
+            resultSink.close();
+        }
+        if (checkpointJournal != null) {
+            try {
+                checkpointJournal.close();
+            } catch (final IOException e) {
+                FeatJAR.log().error(e);
+            }
+        }
+        if (workQueue != null) {
+            workQueue.close();
+        }
+        if (modelCatalog != null) {
+            try {
+                modelCatalog.save(getModelCatalogFile());
+            } catch (final IOException e) {
+                FeatJAR.log().error(e);
+            }
+            modelCatalog.close();
+        }
         deleteTempFolder();
     }
 
@@ -244,14 +718,169 @@ public abstract class Evaluator implements ICommand {
         }
     }
 
-    public CSVFile addCSVWriter(String fileName, String... csvHeader) throws IOException {
-        long count = Files.walk(csvPath)
-                .filter(p -> p.getFileName().toString().matches(Pattern.quote(fileName) + "(-\\d+)?[.]csv"))
-                .count();
-        final Path csvFilePath = csvPath.resolve(fileName + "-" + count + ".csv");
-        final CSVFile csvWriter = new CSVFile(csvFilePath);
-        csvWriter.setHeaderFields(csvHeader);
-        csvWriter.flush();
-        return csvWriter;
+    /**
+     * Runs an analysis on the shared {@link AnalysisExecutor} with the deadline given by {@link #timeout} (in
+     * minutes). A timed out analysis has the time {@link Long#MAX_VALUE}.
+     *
+     * @param name identifies the analysis in the log and in thread dumps
+     * @param task the analysis
+     */
+    public <T> Result<T> runAnalysis(String name, AnalysisExecutor.Task<T> task) {
+        long timeoutMinutes = getOption(timeout);
+        long timeoutMillis = timeoutMinutes < TimeUnit.MILLISECONDS.toMinutes(Long.MAX_VALUE)
+                ? TimeUnit.MINUTES.toMillis(timeoutMinutes)
+                : Long.MAX_VALUE;
+        return analysisExecutor.run(name, timeoutMillis, task);
+    }
+
+    /**
+     * Returns how many analyses limited by {@link #timeout} this evaluation runs for a single cell of a model,
+     * including the warm-up runs before it. A forked evaluation kills a child running one cell only after all of
+     * these analyses could have timed out.
+     *
+     * @param warmupIterations the number of warm-up iterations given by {@link #warmupIterationsOption}
+     */
+    public int getTimedAnalysesPerCell(int warmupIterations) {
+        return 1;
+    }
+
+    /**
+     * Opens a source that loads the given models from {@link #modelPath} in the background, keeping at most
+     * {@link #prefetchOption} models ahead of the ones being evaluated.
+     *
+     * @param names the names of the models in the order they are evaluated
+     * @param formatSupplier the formats used to parse the models
+     */
+    public <T> ModelSource<T> openModels(List<String> names, IFormatSupplier<T> formatSupplier) {
+        return new ModelSource<>(
+                names,
+                name -> {
+                    ModelReader<T> modelReader = new ModelReader<>(modelPath, formatSupplier);
+                    modelReader.setCatalog(modelCatalog);
+                    return modelReader.read(name);
+                },
+                getOption(prefetchOption));
+    }
+
+    /**
+     * Returns the distinct boolean clauses and the variable map of a model. If enabled, the result is taken from or
+     * stored in the CNF cache in {@link #genPath}.
+     * The clause list is shared by all analyses of the model and must not be modified. It holds one clause object per
+     * distinct clause, the {@link ClauseArena} the clauses were deduplicated in is not kept.
+     *
+     * @param modelFile the file the formula was read from
+     * @param formula the formula of the model
+     */
+    public Pair<BooleanClauseList, VariableMap> getCNF(Path modelFile, IFormula formula) {
+        Pair<ClauseArena, VariableMap> cnf = cnfCache != null
+                ? cnfCache.get(modelFile, getModelHash(modelFile), formula)
+                : CNFCache.transform(formula);
+        return new Pair<>(cnf.getKey().toClauseList(), cnf.getValue());
+    }
+
+    /**
+     * Returns the content hash of a model file as recorded in the model catalog, or the hash given by
+     * {@link #modelHashOption} in a forked child.
+     *
+     * @return the hash, or {@code null} if it is unknown
+     */
+    protected String getModelHash(Path modelFile) {
+        String modelHash = getOption(modelHashOption);
+        if (!modelHash.isEmpty()) {
+            return modelHash;
+        }
+        if (modelCatalog != null) {
+            try {
+                return modelCatalog.getHash(modelFile);
+            } catch (final IOException e) {
+                FeatJAR.log().warning("Could not hash " + modelFile + ": " + e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    private Path getModelCatalogFile() {
+        return genPath.resolve("models.catalog");
+    }
+
+    /**
+     * Returns the header of the columns written by {@link #getResourceColumns(Result)}, for each of the given
+     * variants.
+     */
+    public static List<String> getResourceHeader(String... variants) {
+        List<String> header = new ArrayList<>();
+        for (String variant : variants) {
+            header.add(variant + "-cpu");
+            header.add(variant + "-alloc");
+            header.add(variant + "-gcCount");
+            header.add(variant + "-gcTime");
+            header.add(variant + "-peakHeap");
+        }
+        return header;
+    }
+
+    /**
+     * Returns the resource usage of the given result as CSV columns. Times are in milliseconds, sizes in bytes.
+     * The GC and peak heap columns are empty if other analyses ran in the JVM at the same time.
+     */
+    public static List<String> getResourceColumns(Result<?> result) {
+        return List.of(
+                toMillis(result.getCpuTime()),
+                toValue(result.getAllocatedBytes()),
+                toValue(result.getGcCount()),
+                toMillis(result.getGcTime()),
+                toValue(result.getPeakHeap()));
+    }
+
+    /**
+     * Returns the header of the columns written by {@link #getProcessColumns(Result)}, for each of the given
+     * variants.
+     */
+    public static List<String> getProcessHeader(String... variants) {
+        List<String> header = new ArrayList<>();
+        for (String variant : variants) {
+            header.add(variant + "-user");
+            header.add(variant + "-sys");
+            header.add(variant + "-peakRss");
+            header.add(variant + "-vcsw");
+            header.add(variant + "-ivcsw");
+            header.add(variant + "-readBytes");
+            header.add(variant + "-writeBytes");
+        }
+        return header;
+    }
+
+    /**
+     * Returns the operating system resources used by the process tree of the given result as CSV columns. Times are
+     * in milliseconds, sizes in bytes. Columns are empty if they could not be measured.
+     */
+    public static List<String> getProcessColumns(Result<?> result) {
+        return List.of(
+                toMillis(result.getUserTime()),
+                toMillis(result.getSystemTime()),
+                toValue(result.getPeakRss()),
+                toValue(result.getVoluntaryContextSwitches()),
+                toValue(result.getInvoluntaryContextSwitches()),
+                toValue(result.getReadBytes()),
+                toValue(result.getWriteBytes()));
+    }
+
+    protected static String toMillis(long nanos) {
+        return nanos < 0 ? "" : String.valueOf(TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+
+    private static String toTime(long nanos) {
+        return nanos == Long.MAX_VALUE ? "Timeout" : toMillis(nanos);
+    }
+
+    private static String toValue(long value) {
+        return value < 0 ? "" : String.valueOf(value);
+    }
+
+    public IResultWriter addCSVWriter(String fileName, String... csvHeader) throws IOException {
+        if (getOption(forkedChildOption)) {
+            return new ForkedResultWriter(System.out, fileName, csvHeader);
+        }
+        return resultSink.createWriter(fileName, csvHeader);
     }
 }
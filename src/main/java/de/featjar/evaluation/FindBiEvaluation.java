@@ -5,8 +5,9 @@ import de.featjar.base.cli.Option;
 import de.featjar.base.computation.Computations;
 import de.featjar.base.computation.IComputation;
 import de.featjar.base.data.Pair;
-import de.featjar.base.io.csv.CSVFile;
+import de.featjar.evaluation.output.IResultWriter;
 import de.featjar.evaluation.process.Result;
+import de.featjar.evaluation.util.AdaptiveRepetition;
 import de.featjar.evaluation.util.ModelReader;
 import de.featjar.formula.analysis.VariableMap;
 import de.featjar.formula.analysis.bool.*;
@@ -18,8 +19,6 @@ import de.featjar.formula.structure.formula.connective.And;
 import de.featjar.formula.structure.formula.connective.BiImplies;
 import de.featjar.formula.structure.formula.connective.Or;
 import de.featjar.formula.structure.formula.predicate.Literal;
-import de.featjar.formula.transformer.ComputeCNFFormula;
-import de.featjar.formula.transformer.ComputeNNFFormula;
 
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -28,10 +27,11 @@ import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 public class FindBiEvaluation extends Evaluator {
-    private long timeoutV ;
+    private static final String CELL_VARIANT = "update-pre3-IA";
      private Pair< IFormula, Pair<List<String>,List< BiImplies >>> infoModel;
 
      private String modelName;
+     private Path modelFile;
 
     private String date;
 
@@ -40,11 +40,11 @@ public class FindBiEvaluation extends Evaluator {
     @Override
     public void init() throws Exception {
         super.init();
-        timeoutV = optionParser.getResult(timeout).get();
         Path file = optionParser.getResult(INPUT_OPTION).get();
         ModelReader<Pair<IFormula, Pair<List<String>, List<BiImplies>>>> modelReader = new ModelReader<>(file, HiddenFormulaFormats.getInstance());
         infoModel = modelReader.loadFile(modelReader.getPathToFiles()).get();
         modelName = file.getFileName().toString();
+        modelFile = file;
         date = optionParser.getResult(TIME_OPTION).get();
 
 
@@ -53,56 +53,69 @@ public class FindBiEvaluation extends Evaluator {
     @Override
     protected void initSubPaths() {
         super.initSubPaths();
-        csvPath = outputPath.resolve("data").resolve("data-"+date);
+        csvPath = outputPath.resolve("data").resolve(getDataDirectoryName(date));
     }
 
     @Override
     public List<Option<?>> getOptions() {
-        return List.of(
-                INPUT_OPTION,
-                OUTPUT_OPTION,
-                modelsPathOption,
-                resourcesPathOption,
-                timeout,
-                randomSeed,
-                systemsOption,
-                systemIterationsOption,
-                algorithmIterationsOption,
-                TIME_OPTION);
+        List<Option<?>> options = new ArrayList<>(super.getOptions());
+        options.add(TIME_OPTION);
+        return options;
     }
 
 
     @Override
     protected void runEvaluation() throws Exception {
+            List<Integer> indexes = optionParser.getResult(algorithmIterationsOption).get().stream()
+                    .filter(i -> isInShard(modelName, i))
+                    .filter(i -> !isCellCompleted(modelName, CELL_VARIANT, i))
+                    .collect(Collectors.toList());
+            if (indexes.isEmpty()) {
+                FeatJAR.log().info("Skipping completed evaluation for "+modelName);
+                return;
+            }
             FeatJAR.log().info("Running evaluation for "+modelName);
-            CSVFile csvFile = this.addCSVWriter(modelName, "id", "update-pre3-IA");
+            List<String> header = new ArrayList<>(List.of("id", "update-pre3-IA"));
+            header.addAll(getResourceHeader("update-pre3-IA"));
+            IResultWriter csvFile = this.addCSVWriter(modelName, header.toArray(new String[0]));
              IComputation<IFormula> formula = Computations.of(infoModel.getKey());
-            ComputeBooleanRepresentation<IFormula, IBooleanRepresentation> cnf =
-                formula.map(ComputeNNFFormula::new)
-                        .map(ComputeCNFFormula::new)
-                        .map(ComputeBooleanRepresentation::new);
-            IComputation<BooleanClauseList> clauses = cnf.map(Computations::getKey).cast(BooleanClauseList.class);
-            VariableMap variableMap = cnf.map(Computations::getValue).compute();
-
-            List<BooleanClause> temp = clauses.compute().stream().collect(Collectors.toSet()).stream().map(BooleanClause::new).collect(Collectors.toList());
-            BooleanClauseList clauses2 = new BooleanClauseList(temp, clauses.compute().getVariableCount());
+            Pair<BooleanClauseList, VariableMap> cnf = getCNF(modelFile, infoModel.getKey());
+            BooleanClauseList clauses2 = cnf.getKey();
+            VariableMap variableMap = cnf.getValue();
             BooleanAssignment hiddenVariables = new BooleanAssignment(infoModel.getValue().getKey().stream().mapToInt(x -> variableMap.get(x).get()).toArray());
             IFormula formula_simple = new And( clauses2.stream().map(x -> new Or(x.stream().mapToObj(y -> new Literal(y>0,variableMap.get(Math.abs(y)).get())).collect(Collectors.toList()))).collect(Collectors.toList()));
-            List<Integer> indexes = optionParser.getResult(algorithmIterationsOption).get();
+            AdaptiveRepetition repetition = createAdaptiveRepetition(CELL_VARIANT);
             for (int i : indexes) {
+                if (repetition != null && repetition.isDone()) {
+                    skipCell(modelName, CELL_VARIANT, i);
+                    continue;
+                }
+                if (!claimCell(modelName, CELL_VARIANT, i)) {
+                    continue;
+                }
                 // initialize data
                 ComputeBiImplicationFormula biImplicationFormula = new ComputeBiImplicationFormula(formula_simple, variableMap);
                 List<Result<BooleanAssignment>> result = new ArrayList<>();
-                result.add(compute(variableMap,clauses.compute(),hiddenVariables,csvFile,formula,biImplicationFormula));
+                result.add(compute(variableMap,clauses2,hiddenVariables,i,formula,biImplicationFormula));
                 List<String> outputLine = result.stream().map(e -> {
+                            if (e.getTime() == Long.MAX_VALUE) return "Timeout";
+                            if (e.getTime() == Result.INVALID_TIME) return "Error";
                             return TimeUnit.MILLISECONDS.convert(e.getTime(), TimeUnit.NANOSECONDS) + "";
                         }
                 ).collect(Collectors.toList());
                 outputLine.add(0,i+"");
+                result.forEach(e -> outputLine.addAll(getResourceColumns(e)));
 
                 csvFile.addLine(outputLine);
+                completeCell(csvFile, modelName, CELL_VARIANT, i);
+                // a failed analysis has no time, so it is not a measurement
+                if (repetition != null && result.get(0).getTime() != Result.INVALID_TIME) {
+                    repetition.add(result.get(0).getTime());
+                }
+            }
+            if (repetition != null && repetition.getRepetitions() > 0) {
+                writePrecision(modelName, repetition);
             }
-            csvFile.flush();
             FeatJAR.log().info("Finished evaluation for "+modelName);
 
 
@@ -110,50 +123,23 @@ public class FindBiEvaluation extends Evaluator {
 
 
 
-    private Result<BooleanAssignment> compute(VariableMap map, BooleanClauseList clauses_h, BooleanAssignment hiddenVariables,CSVFile csvFile,IComputation<IFormula> formula,ComputeBiImplicationFormula findBi){
-        Result<BooleanAssignment> result = new Result<>();
-
+    private Result<BooleanAssignment> compute(VariableMap map, BooleanClauseList clauses_h, BooleanAssignment hiddenVariables,int iteration,IComputation<IFormula> formula,ComputeBiImplicationFormula findBi){
         List<IFormula> andChilds = (List<IFormula>) formula.compute().getChildren();
-        long start, end;
-        start = System.nanoTime();
-        ExecutorService executorService = Executors.newSingleThreadExecutor();
-        Future<BooleanAssignment> res =  executorService.submit(()->{
-            List<BooleanClause> temp = clauses_h.stream().collect(Collectors.toSet()).stream().map(BooleanClause::new).collect(Collectors.toList());
-            IComputation<BooleanClauseList> clauses = Computations.of(new BooleanClauseList(temp,clauses_h.getVariableCount()));
-           return new ComputeIndeterminate(clauses)
-                   .set(ComputeIndeterminateSlicing.VARIABLES_OF_INTEREST,new PreprocessIffV2(Computations.of(new And(andChilds)))
-                           .addBiImplies(findBi
-                                   .set(ComputeBiImplicationFormula.MAXIMUM_CLAUSE_SIZE,30)
-                                   .compute())
-                           .set(PreprocessIffV2.VARIABLES_OF_INTEREST,hiddenVariables)
-                           .set(PreprocessIffV2.VARIABLE_MAP,map)
-                           .compute())
-                   .compute();
+        return runAnalysis(modelName + "/" + CELL_VARIANT + "/" + iteration, token -> {
+               List<BiImplies> biImplies = findBi
+                       .set(ComputeBiImplicationFormula.MAXIMUM_CLAUSE_SIZE,30)
+                       .compute();
+               token.throwIfCancelled();
+               BooleanAssignment candidates = new PreprocessIffV2(Computations.of(new And(andChilds)))
+                       .addBiImplies(biImplies)
+                       .set(PreprocessIffV2.VARIABLES_OF_INTEREST,hiddenVariables)
+                       .set(PreprocessIffV2.VARIABLE_MAP,map)
+                       .compute();
+               token.throwIfCancelled();
+               return new ComputeIndeterminate(Computations.of(clauses_h))
+                       .set(ComputeIndeterminateSlicing.VARIABLES_OF_INTEREST,candidates)
+                       .compute();
         });
-        try {
-            BooleanAssignment assignment;
-
-            assignment = res.get(timeoutV,TimeUnit.MINUTES);
-            end = System.nanoTime();
-            result.setResult(assignment);
-            result.setTime(end-start);
-        }catch (InterruptedException| ExecutionException e ){
-            e.printStackTrace();
-        } catch (TimeoutException e) {
-            res.cancel(true);
-            result.setTime(Long.MAX_VALUE);
-            result.setResult(null);
-            List<String> output = new ArrayList<>();
-            output.add(0,"");
-            output.add(1,"Timeout");
-            csvFile.addLine(output);
-            csvFile.flush();
-            System.exit(0);
-        } finally{
-            executorService.shutdownNow();
-        }
-
-        return result;
     }
 
 
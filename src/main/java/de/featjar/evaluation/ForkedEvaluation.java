@@ -0,0 +1,294 @@
+package de.featjar.evaluation;
+
+import de.featjar.base.FeatJAR;
+import de.featjar.base.cli.ListOption;
+import de.featjar.base.cli.Option;
+import de.featjar.evaluation.output.IResultWriter;
+import de.featjar.evaluation.process.ForkedCell;
+import de.featjar.evaluation.process.ProcessRunner;
+import de.featjar.evaluation.process.Result;
+import de.featjar.evaluation.util.CellScheduler;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Runs every (model, command, iteration) cell of other evaluation commands in its own JVM.
+ * A child that runs longer than the timeouts of all of its analyses together is killed, so that analyses that
+ * ignore interrupts cannot keep running and disturb later measurements. Children report their rows on the standard output, which are written to the tables
+ * {@code <command>_<table>} of this evaluation.
+ */
+public class ForkedEvaluation extends Evaluator {
+
+    public static final ListOption<String> forkCommandsOption = new ListOption<>("forkCommands", Option.StringParser);
+    public static final Option<String> forkMainClassOption =
+            new Option<>("forkMainClass", Option.StringParser, "de.featjar.base.FeatJAR");
+    // maximum heap of each child, by default an equal share of three quarters of the physical memory
+    public static final Option<String> forkHeapOption = new Option<>("forkHeap", Option.StringParser, "");
+
+    private static final List<String> DEFAULT_COMMANDS =
+            List.of(SlicingEvaluation.class.getName(), FindBiEvaluation.class.getName());
+
+    // children enforce the timeout of each analysis themselves, the grace period covers JVM startup and model loading
+    private static final long KILL_GRACE_PERIOD = TimeUnit.MINUTES.toMillis(1);
+
+    // resources used by each child, measured by this process
+    private static final String PROCESS_TABLE = "processes";
+    private static final List<String> PROCESS_HEADER = createProcessHeader();
+
+    // used if the physical memory is unknown
+    private static final String DEFAULT_HEAP = "2g";
+
+    private final Map<String, IResultWriter> writers = new HashMap<>();
+    // status lines of tables whose header is not known yet, as no child created them so far
+    private final Map<String, List<List<String>>> pendingLines = new HashMap<>();
+    private final Map<String, Integer> headerSizes = new HashMap<>();
+    private final Map<String, Integer> timedAnalyses = new HashMap<>();
+    private String childHeap;
+
+    @Override
+    public List<Option<?>> getOptions() {
+        List<Option<?>> options = new ArrayList<>(super.getOptions());
+        options.add(forkCommandsOption);
+        options.add(forkMainClassOption);
+        options.add(forkHeapOption);
+        return options;
+    }
+
+    @Override
+    public void init() throws Exception {
+        super.init();
+        setCellVariants(getCommands().stream().map(ForkedEvaluation::getVariant).collect(Collectors.toList()));
+        int warmupIterations = getOption(warmupIterationsOption);
+        for (String command : getCommands()) {
+            timedAnalyses.put(command, createCommand(command).getTimedAnalysesPerCell(warmupIterations));
+        }
+    }
+
+    private static Evaluator createCommand(String command) {
+        try {
+            return Class.forName(command)
+                    .asSubclass(Evaluator.class)
+                    .getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException("Cannot fork the evaluation command " + command, e);
+        }
+    }
+
+    private List<String> getCommands() {
+        return optionParser.has(forkCommandsOption)
+                ? optionParser.getResult(forkCommandsOption).get()
+                : DEFAULT_COMMANDS;
+    }
+
+    private static String getVariant(String command) {
+        return command.substring(command.lastIndexOf('.') + 1);
+    }
+
+    @Override
+    protected void runEvaluation() throws Exception {
+        List<String> commands = getCommands();
+        List<Integer> iterations = optionParser.getResult(algorithmIterationsOption).get();
+        try (CellScheduler scheduler = new CellScheduler(getOption(workersOption))) {
+            childHeap = getChildHeap(scheduler.getWorkerCount());
+            FeatJAR.log().info("Running cells in up to " + scheduler.getWorkerCount() + " child processes with a heap of "
+                    + childHeap);
+            for (String modelName : systemNames) {
+                for (String command : commands) {
+                    String variant = getVariant(command);
+                    for (int iteration : iterations) {
+                        if (!isInShard(modelName, iteration)) {
+                            continue;
+                        }
+                        if (isCellCompleted(modelName, variant, iteration)) {
+                            FeatJAR.log().info("Skipping completed cell " + variant + " " + modelName + " " + iteration);
+                            continue;
+                        }
+                        scheduler.submit(() -> runCell(modelName, command, variant, iteration));
+                    }
+                }
+            }
+            scheduler.await();
+        }
+        writePendingLines();
+    }
+
+    private String getChildHeap(int children) {
+        String heap = getOption(forkHeapOption);
+        if (!heap.isEmpty()) {
+            return heap;
+        }
+        OperatingSystemMXBean systemBean = ManagementFactory.getOperatingSystemMXBean();
+        if (systemBean instanceof com.sun.management.OperatingSystemMXBean) {
+            long memory = ((com.sun.management.OperatingSystemMXBean) systemBean).getTotalPhysicalMemorySize();
+            if (memory > 0) {
+                return memory / 4 * 3 / children / (1024 * 1024) + "m";
+            }
+        }
+        return DEFAULT_HEAP;
+    }
+
+    private void runCell(String modelName, String command, String variant, int iteration) throws IOException {
+        if (!claimCell(modelName, variant, iteration)) {
+            return;
+        }
+        String cellName = variant + "-" + modelName + "-" + iteration;
+        Path modelFile = modelPath.resolve(modelName);
+        List<String> arguments = new ArrayList<>();
+        addArgument(arguments, INPUT_OPTION.getName(), modelFile);
+        addArgument(arguments, OUTPUT_OPTION.getName(), tempPath.resolve("fork").resolve(cellName));
+        addArgument(arguments, modelsPathOption.getName(), modelPath);
+        addArgument(arguments, resourcesPathOption.getName(), resourcePath);
+        // share the caches and the model catalog with all children
+        addArgument(arguments, genPathOption.getName(), genPath);
+        addArgument(arguments, algorithmIterationsOption.getName(), iteration);
+        addArgument(arguments, forkedChildOption.getName(), true);
+        // children do not build the model catalog, so they get the hash of their model from it
+        String modelHash = getModelHash(modelFile);
+        if (modelHash != null) {
+            addArgument(arguments, modelHashOption.getName(), modelHash);
+        }
+        if (optionParser.has(timeout)) {
+            addArgument(arguments, timeout.getName(), getOption(timeout));
+        }
+        // the kill deadline depends on the number of warm-up iterations, so the child must use the same
+        addArgument(arguments, warmupIterationsOption.getName(), getOption(warmupIterationsOption));
+        ForkedCell cell = new ForkedCell(
+                cellName, getOption(forkMainClassOption), command, childHeap, arguments);
+
+        ProcessRunner processRunner = new ProcessRunner();
+        // the child measures its own cells, so settling the heap of this process only costs time
+        processRunner.setSettleHeap(false);
+        processRunner.setLogOutput(getOption(logProcessOutputOption));
+        long killTimeout = getKillTimeout(command);
+        if (killTimeout > 0) {
+            processRunner.setTimeout(killTimeout);
+        }
+        Result<List<ForkedCell.Row>> result = processRunner.run(cell);
+
+        List<ForkedCell.Row> rows = cell.getRows();
+        for (ForkedCell.Row row : rows) {
+            getWriter(variant, row.getTable(), cell.getHeader(row.getTable())).addLine(row.getValues());
+        }
+        // the process runner reports a failed launch or an I/O error with an invalid time, not as a timeout
+        String status = result.getTime() == Result.INVALID_TIME
+                ? "Error"
+                : !result.isTerminatedInTime() ? "Timeout" : rows.isEmpty() ? "Error" : "Ok";
+        if (rows.isEmpty()) {
+            FeatJAR.log().info(status + " in " + cellName);
+            addStatusLine(variant, modelName, List.of(String.valueOf(iteration), status));
+        }
+        List<String> processLine = new ArrayList<>(List.of(
+                modelName,
+                String.valueOf(iteration),
+                status,
+                toMillis(result.getTime())));
+        processLine.addAll(getProcessColumns(result));
+        IResultWriter processWriter = getWriter(variant, PROCESS_TABLE, PROCESS_HEADER);
+        processWriter.addLine(processLine);
+        // the process table holds the status of every cell, so the cell is complete once it is written
+        completeCell(processWriter, modelName, variant, iteration);
+    }
+
+    /**
+     * Returns the time in milliseconds after which a child running the given command is killed, or 0 if it is never
+     * killed. The child enforces the timeout of each of its analyses, so it is only killed once all of them could
+     * have timed out.
+     */
+    private long getKillTimeout(String command) {
+        long timeoutMinutes = getOption(timeout);
+        // a non-positive timeout means no limit, as for the analyses in the child
+        if (timeoutMinutes <= 0) {
+            return 0;
+        }
+        try {
+            return Math.addExact(
+                    Math.multiplyExact(TimeUnit.MINUTES.toMillis(timeoutMinutes), timedAnalyses.get(command)),
+                    KILL_GRACE_PERIOD);
+        } catch (ArithmeticException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the writer of the given table, creating it with the given header if necessary. Lines that were kept
+     * back for the table are written first.
+     */
+    private IResultWriter getWriter(String variant, String table, List<String> header) throws IOException {
+        String name = variant + "_" + table;
+        synchronized (writers) {
+            IResultWriter writer = writers.get(name);
+            if (writer == null) {
+                writer = addCSVWriter(name, header.toArray(new String[0]));
+                writers.put(name, writer);
+                headerSizes.put(name, header.size());
+                List<List<String>> lines = pendingLines.remove(name);
+                if (lines != null) {
+                    for (List<String> line : lines) {
+                        writer.addLine(pad(line, header.size()));
+                    }
+                }
+            }
+            return writer;
+        }
+    }
+
+    /**
+     * Adds a line with the status of a cell that produced no rows. If the table was not created by a child yet, its
+     * header is unknown and the line is kept back until it is.
+     */
+    private void addStatusLine(String variant, String table, List<String> line) {
+        String name = variant + "_" + table;
+        synchronized (writers) {
+            IResultWriter writer = writers.get(name);
+            if (writer != null) {
+                writer.addLine(pad(line, headerSizes.get(name)));
+            } else {
+                pendingLines.computeIfAbsent(name, n -> new ArrayList<>()).add(line);
+            }
+        }
+    }
+
+    /**
+     * Writes the lines of tables that no child created, which only consist of status lines.
+     */
+    private void writePendingLines() throws IOException {
+        synchronized (writers) {
+            for (Map.Entry<String, List<List<String>>> entry : pendingLines.entrySet()) {
+                String variant = entry.getKey().substring(0, entry.getKey().indexOf('_'));
+                IResultWriter writer = addCSVWriter(entry.getKey(), "id", variant);
+                writers.put(entry.getKey(), writer);
+                entry.getValue().forEach(writer::addLine);
+            }
+            pendingLines.clear();
+        }
+    }
+
+    private static List<String> pad(List<String> line, int size) {
+        List<String> paddedLine = new ArrayList<>(line);
+        while (paddedLine.size() < size) {
+            paddedLine.add("");
+        }
+        return paddedLine;
+    }
+
+    private static List<String> createProcessHeader() {
+        List<String> header = new ArrayList<>(List.of("model", "id", "status", "wall"));
+        header.addAll(getProcessHeader("child"));
+        return header;
+    }
+
+    private static void addArgument(List<String> arguments, String name, Object value) {
+        arguments.add("--" + name);
+        arguments.add(String.valueOf(value));
+    }
+}
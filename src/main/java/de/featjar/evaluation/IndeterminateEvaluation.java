@@ -4,9 +4,15 @@ import de.featjar.base.FeatJAR;
 import de.featjar.base.computation.Computations;
 import de.featjar.base.computation.IComputation;
 import de.featjar.base.data.Pair;
-import de.featjar.base.io.csv.CSVFile;
+import de.featjar.evaluation.output.IResultWriter;
+import de.featjar.evaluation.process.AnalysisExecutor;
 import de.featjar.evaluation.process.Result;
-import de.featjar.evaluation.util.ModelReader;
+import de.featjar.evaluation.util.AdaptiveRepetition;
+import de.featjar.evaluation.util.CancellationToken;
+import de.featjar.evaluation.util.CellScheduler;
+import de.featjar.evaluation.util.GCSettler;
+import de.featjar.evaluation.util.ModelSource;
+import de.featjar.evaluation.util.SteadyStateDetector;
 import de.featjar.formula.analysis.VariableMap;
 import de.featjar.formula.analysis.bool.*;
 import de.featjar.formula.analysis.mig.solver.MIGBuilder;
@@ -18,146 +24,265 @@ import de.featjar.formula.io.FormulaFormats;
 import de.featjar.formula.io.HiddenFormulaFormats;
 import de.featjar.formula.structure.formula.IFormula;
 import de.featjar.formula.structure.formula.connective.BiImplies;
-import de.featjar.formula.transformer.ComputeCNFFormula;
-import de.featjar.formula.transformer.ComputeNNFFormula;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 public class IndeterminateEvaluation extends Evaluator {
-    private final HashMap< String, Pair< IFormula, Pair<List<String>,List< BiImplies >>>> models = new HashMap<>();
-
+    // all variants of an iteration are written as one row
+    private static final String CELL_VARIANT = "all";
+    private static final String[] VARIANTS = {"IA", "pre1-IA","pre1DCBe-IA","pre1DCDu-IA", "pre2-IA", "pre3-IA", "pre4-IA", "pre5-IA", "impB-IA", "impA-IA"};
 
     @Override
-    public void init() throws Exception {
-        super.init();
-        for(String modelName : systemNames) {
-            ModelReader<Pair<IFormula, Pair<List<String>, List<BiImplies>>>> modelReader = new ModelReader<>(modelPath.resolve(modelName), HiddenFormulaFormats.getInstance());
-            models.put(modelName, modelReader.loadFile(modelReader.getPathToFiles()).get());
+    protected void runEvaluation() throws Exception {
+        Map<String, List<Integer>> pendingIterations = new LinkedHashMap<>();
+        for (String modelName : systemNames) {
+            List<Integer> iterations = getPendingIterations(modelName);
+            if (iterations.isEmpty()) {
+                FeatJAR.log().info("Skipping completed evaluation for "+modelName);
+            } else {
+                pendingIterations.put(modelName, iterations);
+            }
+        }
+        try (CellScheduler scheduler = new CellScheduler(getOption(workersOption));
+                ModelSource<Pair<IFormula, Pair<List<String>, List<BiImplies>>>> source =
+                        openModels(new ArrayList<>(pendingIterations.keySet()), HiddenFormulaFormats.getInstance())) {
+            for (ModelSource.LoadedModel<Pair<IFormula, Pair<List<String>, List<BiImplies>>>> model = source.next();
+                    model != null;
+                    model = source.next()) {
+                evaluateModel(scheduler, model, pendingIterations.get(model.getName()));
+            }
+            scheduler.await();
         }
     }
 
+    @Override
+    public int getTimedAnalysesPerCell(int warmupIterations) {
+        // each warm-up row and each cell runs all variants
+        return VARIANTS.length * (warmupIterations + 1);
+    }
 
+    private List<Integer> getPendingIterations(String modelName) {
+        return optionParser.getResult(algorithmIterationsOption).get().stream()
+                .filter(i -> isInShard(modelName, i))
+                .filter(i -> !isCellCompleted(modelName, CELL_VARIANT, i))
+                .collect(Collectors.toList());
+    }
 
-    @Override
-    protected void runEvaluation() throws Exception {
-        for(String modelName: models.keySet() ) {
+    private void evaluateModel(CellScheduler scheduler, ModelSource.LoadedModel<Pair<IFormula, Pair<List<String>, List<BiImplies>>>> loadedModel, List<Integer> indexes) throws Exception {
+        String modelName = loadedModel.getName();
+        if (loadedModel.getModel().isEmpty()) {
+            FeatJAR.log().error("Could not load model " + modelName);
+            loadedModel.release();
+            return;
+        }
+        // with several workers, a few more iterations than needed may already be running when the rule is satisfied
+        AdaptiveRepetition repetition = createAdaptiveRepetition(VARIANTS);
+        // the model is released by whoever finishes last: the setup below or one of the cells
+        AtomicInteger remainingCells = new AtomicInteger(indexes.size() + 1);
+        int submittedCells = 0;
+        try {
             FeatJAR.log().info("Running evaluation for "+modelName);
-            Pair< IFormula, Pair<List<String>,List< BiImplies >>> model = models.get(modelName);
-            CSVFile csvFile = this.addCSVWriter(modelName, "id","IA", "pre1-IA","pre1DCBe-IA","pre1DCDu-IA", "pre2-IA", "pre3-IA", "pre4-IA", "pre5-IA", "impB-IA", "impA-IA","CorrectRes");
-            IComputation<IFormula> formula = Computations.of(model.getKey());
-            ComputeBooleanRepresentation<IFormula, IBooleanRepresentation> cnf =
-                    formula.map(ComputeNNFFormula::new)
-                            .map(ComputeCNFFormula::new)
-                            .map(ComputeBooleanRepresentation::new);
-            IComputation<BooleanClauseList> clauses = cnf.map(Computations::getKey).cast(BooleanClauseList.class);
-            BooleanClauseList clauses1 = clauses.compute();
-            List<BooleanClause> temp = clauses1.stream().collect(Collectors.toSet()).stream().map(BooleanClause::new).collect(Collectors.toList());
-            IComputation<BooleanClauseList> cnfS = Computations.of(new BooleanClauseList(temp,clauses1.getVariableCount()));
-            VariableMap variableMap = cnf.map(Computations::getValue).compute();
-            BooleanAssignment hiddenVariables = new BooleanAssignment(model.getValue().getKey().stream().mapToInt(x -> variableMap.get(x).get()).toArray());
-            MIGBuilder migBuilder=  cnfS
-                    .map(MIGBuilder::new);
-            ModalImplicationGraph modalImplicationGraph = migBuilder.compute();
-            List<Integer> indexes = optionParser.getResult(algorithmIterationsOption).get();
-            BooleanAssignment deadCore = new ComputeCoreSAT4J(clauses).compute();
-            int formulaSize = formula.getChildrenCount();
-            int hiddenVariablesSize  = hiddenVariables.size();
+            Pair< IFormula, Pair<List<String>,List< BiImplies >>> model = loadedModel.getModel().get();
+            List<String> header = new ArrayList<>();
+            header.add("id");
+            header.addAll(List.of(VARIANTS));
+            header.add("CorrectRes");
+            header.add("SteadyState");
+            header.addAll(getResourceHeader(VARIANTS));
+            IResultWriter csvFile = this.addCSVWriter(modelName, header.toArray(new String[0]));
+            ModelContext context = createContext(modelName, model);
+            // with several workers, a full collection would pause the cells that are timed on the other workers
+            context.settleHeap = !scheduler.isParallel();
 
-            for (int i : indexes) {
-                // initialize data
-                assert formulaSize == formula.getChildrenCount();
-                assert hiddenVariablesSize == hiddenVariables.size();
-                // initialise complete indeterminate analysis
-                ComputeIndeterminate normalIndeterminate = new ComputeIndeterminate(cnfS);
-                // initialise pre process
-                PreprocessIff preprocessIff = new PreprocessIff(formula);
-                PreprocessIff preprocessIff1 = new PreprocessIff(formula);
-                preprocessIff1.set(PreprocessIff.CORE_DEAD_FEATURE, deadCore);
-                PreprocessIff preprocessIff2 = new PreprocessIff(formula);
-                PreprocessIffV2 preprocessIffV2 = new PreprocessIffV2(formula);
-                PreprocessIffSort preprocessIffSort = new PreprocessIffSort(formula);
-                PreprocessIffComp preprocessIffComp = new PreprocessIffComp(formula);
-                PreprocessIffCompSort preprocessIffCompSort = new PreprocessIffCompSort(formula);
-                PreprocessImGraph preprocessImGraph = new PreprocessImGraph(Computations.of(modalImplicationGraph));
-                List<Result<BooleanAssignment>> result = new ArrayList<>();
-                result.add(compute(new Analysis(normalIndeterminate, hiddenVariables)));
-                result.add(compute(new Analysis(preprocessIff, variableMap, clauses1, hiddenVariables)));
-                result.add(compute(new Analysis(preprocessIff1, variableMap, clauses1, hiddenVariables)));
-                result.add(compute(new Analysis(preprocessIff2, variableMap, clauses1, hiddenVariables,true)));
-                result.add(compute(new Analysis(preprocessIffV2, variableMap, clauses1, hiddenVariables)));
-                result.add(compute(new Analysis(preprocessIffSort, variableMap, clauses1, hiddenVariables)));
-                result.add(compute(new Analysis(preprocessIffComp, variableMap, clauses1, hiddenVariables)));
-                result.add(compute(new Analysis(preprocessIffCompSort, variableMap, clauses1, hiddenVariables)));
-                result.add(compute(new Analysis(preprocessImGraph, variableMap, normalIndeterminate, hiddenVariables)));
-                result.add(compute(new Analysis(migBuilder, normalIndeterminate, hiddenVariables)));
-
-                int correct = result.size();
-                List<Integer> res = null;
-                for(int j = 0; j < result.size();j++ ) {
-
-                    if(result.get(j).getResult() != null) {
-                        if( res == null) {
-                            res = result.get(j).getResult().streamValues().map(Pair::getKey).sorted().collect(Collectors.toList());
-                        }else {
-                            List<Integer> otherRes = result.get(j).getResult().streamValues().map(Pair::getKey).sorted().collect(Collectors.toList());
-                            if (!otherRes.equals(res)) {
-                                List<Integer> finalRes = res;
-                                List<Integer> wrong = otherRes.stream().filter(x -> !finalRes.contains(x)).collect(Collectors.toList());
-                                FeatJAR.log().info(j + ": " + otherRes.size() + " " + res.size());
-                                wrong.addAll(res.stream().filter(x -> !otherRes.contains(x)).collect(Collectors.toList()));
-                                FeatJAR.log().info(j + ": " + wrong);
-                                List<String> wrongName = wrong.stream().map(x -> variableMap.get(x).get()).collect(Collectors.toList());
-                                FeatJAR.log().info(j + ": " + wrongName);
-                                correct--;
-                            }
+            // the warm-up rows are timed like the cells, so they also run on a worker, and the cells wait for them
+            int warmupIterations = getOption(warmupIterationsOption);
+            CountDownLatch warmedUp = new CountDownLatch(warmupIterations > 0 ? 1 : 0);
+            if (warmupIterations > 0) {
+                scheduler.submit(() -> {
+                    try {
+                        for (int w = 0; w < warmupIterations; w++) {
+                            computeRow(context);
                         }
+                    } finally {
+                        warmedUp.countDown();
                     }
-                }
-                List<String> outputLine = result.stream().map(e -> {
-                            return TimeUnit.MILLISECONDS.convert(e.getTime(), TimeUnit.NANOSECONDS) + "";
-                        }
-                ).collect(Collectors.toList());
-                outputLine.add(0,i+"");
-                outputLine.add(correct+"");
+                });
+            }
+            int steadyStateWindow = getOption(steadyStateWindowOption);
+            SteadyStateDetector steadyStateDetector = steadyStateWindow > 0
+                    ? new SteadyStateDetector(steadyStateWindow, getOption(steadyStateThresholdOption))
+                    : null;
 
-                csvFile.addLine(outputLine);
+            for (int i : indexes) {
+                // counted before submitting, as a single worker runs the cell within submit
+                submittedCells++;
+                scheduler.submit(() -> {
+                    try {
+                        // the warm-up was submitted first, so it has finished or is running on another worker
+                        warmedUp.await();
+                        if (repetition != null && repetition.isDone()) {
+                            skipCell(modelName, CELL_VARIANT, i);
+                            return;
+                        }
+                        if (!claimCell(modelName, CELL_VARIANT, i)) {
+                            return;
+                        }
+                        evaluateCell(context, csvFile, steadyStateDetector, repetition, i);
+                    } finally {
+                        if (remainingCells.decrementAndGet() == 0) {
+                            finishModel(loadedModel, repetition);
+                        }
+                    }
+                });
+            }
+        } finally {
+            if (remainingCells.addAndGet(submittedCells - indexes.size() - 1) == 0) {
+                finishModel(loadedModel, repetition);
             }
-            csvFile.flush();
-            FeatJAR.log().info("Finished evaluation for "+modelName);
         }
+    }
 
+    private ModelContext createContext(String modelName, Pair<IFormula, Pair<List<String>, List<BiImplies>>> model) {
+        ModelContext context = new ModelContext();
+        context.name = modelName;
+        context.formula = Computations.of(model.getKey());
+        Pair<BooleanClauseList, VariableMap> cnf = getCNF(modelPath.resolve(modelName), model.getKey());
+        context.clauses = cnf.getKey();
+        context.cnfS = Computations.of(context.clauses);
+        VariableMap variableMap = cnf.getValue();
+        context.variableMap = variableMap;
+        context.hiddenVariables = new BooleanAssignment(model.getValue().getKey().stream().mapToInt(x -> variableMap.get(x).get()).toArray());
+        context.modalImplicationGraph = context.cnfS.map(MIGBuilder::new).compute();
+        context.deadCore = new ComputeCoreSAT4J(context.cnfS).compute();
+        return context;
     }
 
+    /**
+     * Releases the model once it is no longer needed by any cell.
+     */
+    private void finishModel(ModelSource.LoadedModel<?> loadedModel, AdaptiveRepetition repetition) throws IOException {
+        loadedModel.release();
+        if (repetition != null && repetition.getRepetitions() > 0) {
+            writePrecision(loadedModel.getName(), repetition);
+        }
+        FeatJAR.log().info("Finished evaluation for "+loadedModel.getName());
+    }
 
+    private void evaluateCell(ModelContext context, IResultWriter csvFile, SteadyStateDetector steadyStateDetector, AdaptiveRepetition repetition, int i) {
+        // initialize data
+        List<Result<BooleanAssignment>> result = computeRow(context);
 
-    private Result<BooleanAssignment> compute(Analysis analysis){
-        Result<BooleanAssignment> result = new Result<>();
-        long start, end;
-        start = System.nanoTime();
-        ExecutorService executorService = Executors.newSingleThreadExecutor();
-        Future<BooleanAssignment> res =  executorService.submit(analysis);
-        try {
-            BooleanAssignment assignment;
-
-            assignment = res.get();
-            end = System.nanoTime();
-            result.setResult(assignment);
-            result.setTime(end-start);
-        }catch (InterruptedException| ExecutionException e ){
-            e.printStackTrace();
-        } finally{
-            executorService.shutdownNow();
+        int correct = result.size();
+        List<Integer> res = null;
+        for(int j = 0; j < result.size();j++ ) {
+
+            if(result.get(j).getResult() != null) {
+                if( res == null) {
+                    res = result.get(j).getResult().streamValues().map(Pair::getKey).sorted().collect(Collectors.toList());
+                }else {
+                    List<Integer> otherRes = result.get(j).getResult().streamValues().map(Pair::getKey).sorted().collect(Collectors.toList());
+                    if (!otherRes.equals(res)) {
+                        List<Integer> finalRes = res;
+                        List<Integer> wrong = otherRes.stream().filter(x -> !finalRes.contains(x)).collect(Collectors.toList());
+                        FeatJAR.log().info(j + ": " + otherRes.size() + " " + res.size());
+                        wrong.addAll(res.stream().filter(x -> !otherRes.contains(x)).collect(Collectors.toList()));
+                        FeatJAR.log().info(j + ": " + wrong);
+                        List<String> wrongName = wrong.stream().map(x -> context.variableMap.get(x).get()).collect(Collectors.toList());
+                        FeatJAR.log().info(j + ": " + wrongName);
+                        correct--;
+                    }
+                }
+            }
+        }
+        List<String> outputLine = result.stream().map(e -> {
+                    if (e.getTime() == Long.MAX_VALUE) return "Timeout";
+                    if (e.getTime() == Result.INVALID_TIME) return "Error";
+                    return TimeUnit.MILLISECONDS.convert(e.getTime(), TimeUnit.NANOSECONDS) + "";
+                }
+        ).collect(Collectors.toList());
+        outputLine.add(0,i+"");
+        outputLine.add(correct+"");
+        // a failed analysis has no time, so its row is not a measurement
+        boolean failed = result.stream().anyMatch(e -> e.getTime() == Result.INVALID_TIME);
+        if (steadyStateDetector != null && !failed && result.stream().noneMatch(e -> e.getTime() == Long.MAX_VALUE)) {
+            long rowTime = result.stream().mapToLong(Result::getTime).sum();
+            outputLine.add(steadyStateDetector.add(rowTime) + "");
+        } else {
+            outputLine.add("");
+        }
+        result.forEach(e -> outputLine.addAll(getResourceColumns(e)));
+
+        csvFile.addLine(outputLine);
+        completeCell(csvFile, context.name, CELL_VARIANT, i);
+        if (repetition != null && !failed) {
+            repetition.add(result.stream().mapToLong(Result::getTime).toArray());
         }
+    }
 
+    /**
+     * Runs all analysis variants once. Each call creates its own computations, as they are not safe to share
+     * between threads.
+     */
+    private List<Result<BooleanAssignment>> computeRow(ModelContext context) {
+        IComputation<IFormula> formula = context.formula;
+        VariableMap variableMap = context.variableMap;
+        BooleanClauseList clauses1 = context.clauses;
+        BooleanAssignment hiddenVariables = context.hiddenVariables;
+        MIGBuilder migBuilder = context.cnfS.map(MIGBuilder::new);
+        // initialise complete indeterminate analysis
+        ComputeIndeterminate normalIndeterminate = new ComputeIndeterminate(context.cnfS);
+        // initialise pre process
+        PreprocessIff preprocessIff = new PreprocessIff(formula);
+        PreprocessIff preprocessIff1 = new PreprocessIff(formula);
+        preprocessIff1.set(PreprocessIff.CORE_DEAD_FEATURE, context.deadCore);
+        PreprocessIff preprocessIff2 = new PreprocessIff(formula);
+        PreprocessIffV2 preprocessIffV2 = new PreprocessIffV2(formula);
+        PreprocessIffSort preprocessIffSort = new PreprocessIffSort(formula);
+        PreprocessIffComp preprocessIffComp = new PreprocessIffComp(formula);
+        PreprocessIffCompSort preprocessIffCompSort = new PreprocessIffCompSort(formula);
+        PreprocessImGraph preprocessImGraph = new PreprocessImGraph(Computations.of(context.modalImplicationGraph));
+        List<Analysis> analyses = new ArrayList<>();
+        analyses.add(new Analysis(normalIndeterminate, hiddenVariables));
+        analyses.add(new Analysis(preprocessIff, variableMap, clauses1, hiddenVariables));
+        analyses.add(new Analysis(preprocessIff1, variableMap, clauses1, hiddenVariables));
+        analyses.add(new Analysis(preprocessIff2, variableMap, clauses1, hiddenVariables,true));
+        analyses.add(new Analysis(preprocessIffV2, variableMap, clauses1, hiddenVariables));
+        analyses.add(new Analysis(preprocessIffSort, variableMap, clauses1, hiddenVariables));
+        analyses.add(new Analysis(preprocessIffComp, variableMap, clauses1, hiddenVariables));
+        analyses.add(new Analysis(preprocessIffCompSort, variableMap, clauses1, hiddenVariables));
+        analyses.add(new Analysis(preprocessImGraph, variableMap, normalIndeterminate, hiddenVariables));
+        analyses.add(new Analysis(migBuilder, normalIndeterminate, hiddenVariables));
+        List<Result<BooleanAssignment>> result = new ArrayList<>();
+        for (int j = 0; j < analyses.size(); j++) {
+            if (context.settleHeap) {
+                GCSettler.settle();
+            }
+            result.add(runAnalysis(context.name + "/" + VARIANTS[j], analyses.get(j)));
+        }
         return result;
     }
 
-    private static class Analysis implements Callable<BooleanAssignment>{
+    private static class ModelContext {
+        String name;
+        IComputation<IFormula> formula;
+        BooleanClauseList clauses;
+        IComputation<BooleanClauseList> cnfS;
+        VariableMap variableMap;
+        BooleanAssignment hiddenVariables;
+        ModalImplicationGraph modalImplicationGraph;
+        BooleanAssignment deadCore;
+        boolean settleHeap;
+    }
+
+    private static class Analysis implements AnalysisExecutor.Task<BooleanAssignment>{
         ASAT4JAnalysis.Solution<BooleanAssignment> indeterminate;
         ComputeIndeterminate indeterminateAnalyse;
         IndeterminatePreprocessFormula preprocessF;
@@ -206,42 +331,50 @@ public class IndeterminateEvaluation extends Evaluator {
         }
 
         @Override
-        public BooleanAssignment call() {
+        public BooleanAssignment call(CancellationToken token) {
             if(type == 0){
                 return indeterminate
                         .set(ComputeIndeterminate.VARIABLES_OF_INTEREST, hiddenVariables)
                         .compute();
             }else if(type == 1){
-                List<BooleanClause> temp = clauses.stream().collect(Collectors.toSet()).stream().map(BooleanClause::new).collect(Collectors.toList());
-                BooleanClauseList cnfS = new BooleanClauseList(temp,clauses.getVariableCount());
-                return new ComputeIndeterminate(Computations.of(cnfS))
-                        .set(ComputeIndeterminate.VARIABLES_OF_INTEREST,preprocess
-                                .set(IndeterminatePreprocess.VARIABLE_MAP,map)
-                                .set(IndeterminatePreprocess.VARIABLES_OF_INTEREST,hiddenVariables)
-                                .compute())
+                BooleanAssignment candidates = preprocess
+                        .set(IndeterminatePreprocess.VARIABLE_MAP,map)
+                        .set(IndeterminatePreprocess.VARIABLES_OF_INTEREST,hiddenVariables)
+                        .compute();
+                token.throwIfCancelled();
+                return new ComputeIndeterminate(Computations.of(clauses))
+                        .set(ComputeIndeterminate.VARIABLES_OF_INTEREST,candidates)
                         .compute();
             }else if(type == 2){
-                List<BooleanClause> temp = clauses.stream().collect(Collectors.toSet()).stream().map(BooleanClause::new).collect(Collectors.toList());
-                BooleanClauseList cnfS = new BooleanClauseList(temp,clauses.getVariableCount());
-                return new ComputeIndeterminate(Computations.of(cnfS))
-                        .set(ComputeIndeterminate.VARIABLES_OF_INTEREST,preprocess
-                                .set(IndeterminatePreprocess.VARIABLE_MAP,map)
-                                .set(IndeterminatePreprocess.VARIABLES_OF_INTEREST,hiddenVariables)
-                                .set(IndeterminatePreprocess.CORE_DEAD_FEATURE,new ComputeCoreSAT4J(Computations.of(cnfS)).compute())
-                                .compute())
+                BooleanAssignment deadCore = new ComputeCoreSAT4J(Computations.of(clauses)).compute();
+                token.throwIfCancelled();
+                BooleanAssignment candidates = preprocess
+                        .set(IndeterminatePreprocess.VARIABLE_MAP,map)
+                        .set(IndeterminatePreprocess.VARIABLES_OF_INTEREST,hiddenVariables)
+                        .set(IndeterminatePreprocess.CORE_DEAD_FEATURE,deadCore)
+                        .compute();
+                token.throwIfCancelled();
+                return new ComputeIndeterminate(Computations.of(clauses))
+                        .set(ComputeIndeterminate.VARIABLES_OF_INTEREST,candidates)
                         .compute();
             }else if (type == 3) {
-                preprocessImGraph = new PreprocessImGraph(Computations.of(migBuilder.compute()));
+                ModalImplicationGraph modalImplicationGraph = migBuilder.compute();
+                token.throwIfCancelled();
+                preprocessImGraph = new PreprocessImGraph(Computations.of(modalImplicationGraph));
+                BooleanAssignment candidates = preprocessImGraph
+                        .set(IndeterminatePreprocess.VARIABLES_OF_INTEREST,hiddenVariables)
+                        .compute();
+                token.throwIfCancelled();
                 return indeterminateAnalyse
-                        .set(ComputeIndeterminate.VARIABLES_OF_INTEREST,preprocessImGraph
-                                .set(IndeterminatePreprocess.VARIABLES_OF_INTEREST,hiddenVariables)
-                                .compute())
+                        .set(ComputeIndeterminate.VARIABLES_OF_INTEREST,candidates)
                         .compute();
             }else{
+                BooleanAssignment candidates = preprocess
+                        .set(IndeterminatePreprocess.VARIABLES_OF_INTEREST,hiddenVariables)
+                        .compute();
+                token.throwIfCancelled();
                 return indeterminateAnalyse
-                        .set(ComputeIndeterminate.VARIABLES_OF_INTEREST,preprocess
-                                .set(IndeterminatePreprocess.VARIABLES_OF_INTEREST,hiddenVariables)
-                                .compute())
+                        .set(ComputeIndeterminate.VARIABLES_OF_INTEREST,candidates)
                         .compute();
             }
 
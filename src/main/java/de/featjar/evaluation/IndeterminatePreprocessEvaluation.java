@@ -4,9 +4,12 @@ import de.featjar.base.FeatJAR;
 import de.featjar.base.computation.Computations;
 import de.featjar.base.computation.IComputation;
 import de.featjar.base.data.Pair;
-import de.featjar.base.io.csv.CSVFile;
+import de.featjar.evaluation.output.IResultWriter;
+import de.featjar.evaluation.process.AnalysisExecutor;
 import de.featjar.evaluation.process.Result;
-import de.featjar.evaluation.util.ModelReader;
+import de.featjar.evaluation.util.CancellationToken;
+import de.featjar.evaluation.util.CellScheduler;
+import de.featjar.evaluation.util.ModelSource;
 import de.featjar.formula.analysis.VariableMap;
 import de.featjar.formula.analysis.bool.*;
 import de.featjar.formula.analysis.mig.solver.MIGBuilder;
@@ -20,114 +23,97 @@ import de.featjar.formula.structure.formula.connective.And;
 import de.featjar.formula.structure.formula.connective.BiImplies;
 import de.featjar.formula.structure.formula.connective.Or;
 import de.featjar.formula.structure.formula.predicate.Literal;
-import de.featjar.formula.transformer.ComputeCNFFormula;
-import de.featjar.formula.transformer.ComputeNNFFormula;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 public class IndeterminatePreprocessEvaluation extends Evaluator {
-    private long timeoutV;
-    private HashMap<String, Pair<IFormula, Pair<List<String>, List<BiImplies>>>> models = new HashMap<>();
-
-    @Override
-    public void init() throws Exception {
-        super.init();
-        timeoutV = optionParser.getResult(timeout).get();
-        for (String modelName : systemNames) {
-            ModelReader<Pair<IFormula, Pair<List<String>, List<BiImplies>>>> modelReader = new ModelReader<>(modelPath.resolve(modelName), HiddenFormulaFormats.getInstance());
-            models.put(modelName, modelReader.loadFile(modelReader.getPathToFiles()).get());
-        }
-    }
-
+    private static final String CELL_VARIANT = "imp-IA";
 
     @Override
     protected void runEvaluation() throws Exception {
-        CSVFile csvFile = this.addCSVWriter("data", "id", "count","imp-IA","update-pre1-IA");
-
-        for (String modelName : models.keySet()) {
-            FeatJAR.log().info("Running preprocess evaluation for " + modelName);
-            Pair<IFormula, Pair<List<String>, List<BiImplies>>> model = models.get(modelName);
-            IComputation<IFormula> formula = Computations.of(model.getKey());
-            ComputeBooleanRepresentation<IFormula, IBooleanRepresentation> cnf =
-                    formula.map(ComputeNNFFormula::new)
-                            .map(ComputeCNFFormula::new)
-                            .map(ComputeBooleanRepresentation::new);
-            IComputation<BooleanClauseList> clauses = cnf.map(Computations::getKey).cast(BooleanClauseList.class);
+        List<String> header = new ArrayList<>(List.of("id", "count","imp-IA","update-pre1-IA"));
+        header.addAll(getResourceHeader("imp-IA"));
+        IResultWriter csvFile = this.addCSVWriter("data", header.toArray(new String[0]));
 
-            List<BooleanClause> temp = clauses.compute().stream().collect(Collectors.toSet()).stream().map(BooleanClause::new).collect(Collectors.toList());
-            IComputation<BooleanClauseList> cnfS = Computations.of(new BooleanClauseList(temp,clauses.compute().getVariableCount()));
-            VariableMap variableMap = cnf.map(Computations::getValue).compute();
-            BooleanAssignment hiddenVariables = new BooleanAssignment(model.getValue().getKey().stream().mapToInt(x -> variableMap.get(x).get()).toArray());
-            ModalImplicationGraph modalImplicationGraph = cnfS
-                    .map(MIGBuilder::new).compute();
-            int formulaSize = formula.getChildrenCount();
-            int hiddenVariablesSize = hiddenVariables.size();
-            // initialize data
-            assert formulaSize == formula.getChildrenCount();
-            assert hiddenVariablesSize == hiddenVariables.size();
-            IFormula formula_simple = new And( cnfS.compute().stream().map(x -> new Or(x.stream().mapToObj(y -> new Literal(y>0,variableMap.get(Math.abs(y)).get())).collect(Collectors.toList()))).collect(Collectors.toList()));
-
-            // initialise complete indeterminate analysis
-            ComputeIndeterminate normalIndeterminate = new ComputeIndeterminate(cnfS);
-            List<IFormula> andChilds = (List<IFormula>) formula.compute().getChildren();
-            PreprocessIffSort preprocessIffSort = new PreprocessIffSort(Computations.of(new And(andChilds)));
-            PreprocessImGraph preprocessImGraph = new PreprocessImGraph(Computations.of(modalImplicationGraph));
-            ComputeBiImplicationFormula biImplicationFormula = new ComputeBiImplicationFormula(formula_simple, variableMap);
-            List<Result<BooleanAssignment>> result = new ArrayList<>();
-            result.add(compute(new Analysis(preprocessImGraph, variableMap, normalIndeterminate, hiddenVariables)));
-          //  result.add(compute(new Analysis(biImplicationFormula, variableMap, preprocessIffSort, hiddenVariables)));
-            List<String> outputLine = result.stream().map(e -> {
-                if (e.getTime() == Long.MAX_VALUE) return "Timeout";
-                return e.getResult().size() + "";
-            }).collect(Collectors.toList());
-            outputLine.add(0, modelName);
-            outputLine.add(1, hiddenVariablesSize + "");
-            outputLine.add(2, "");
-            csvFile.addLine(outputLine);
-            csvFile.flush();
-            FeatJAR.log().info("Finished evaluation for " + modelName);
+        List<String> pendingModels = new ArrayList<>();
+        for (String modelName : systemNames) {
+            if (!isInShard(modelName)) {
+                continue;
+            }
+            if (isCellCompleted(modelName, CELL_VARIANT, 0)) {
+                FeatJAR.log().info("Skipping completed preprocess evaluation for " + modelName);
+            } else {
+                pendingModels.add(modelName);
+            }
         }
-
-    }
-
-
-    private Result<BooleanAssignment> compute(Analysis analysis) {
-        Result<BooleanAssignment> result = new Result<>();
-        long start, end = 0;
-        start = System.nanoTime();
-        ExecutorService executorService = Executors.newSingleThreadExecutor();
-        Future<BooleanAssignment> res = executorService.submit(analysis);
-        try {
-            BooleanAssignment assignment;
-            if(timeoutV > 0 ) {
-                assignment = res.get(timeoutV, TimeUnit.MINUTES);
-            }else {
-                assignment = res.get();
+        try (CellScheduler scheduler = new CellScheduler(getOption(workersOption));
+                ModelSource<Pair<IFormula, Pair<List<String>, List<BiImplies>>>> source =
+                        openModels(pendingModels, HiddenFormulaFormats.getInstance())) {
+            for (ModelSource.LoadedModel<Pair<IFormula, Pair<List<String>, List<BiImplies>>>> model = source.next();
+                    model != null;
+                    model = source.next()) {
+                ModelSource.LoadedModel<Pair<IFormula, Pair<List<String>, List<BiImplies>>>> loadedModel = model;
+                scheduler.submit(() -> {
+                    try {
+                        if (loadedModel.getModel().isEmpty()) {
+                            FeatJAR.log().error("Could not load model " + loadedModel.getName());
+                        } else if (claimCell(loadedModel.getName(), CELL_VARIANT, 0)) {
+                            evaluateModel(csvFile, loadedModel.getName(), loadedModel.getModel().get());
+                        }
+                    } finally {
+                        loadedModel.release();
+                    }
+                });
             }
-            end = System.nanoTime();
-            result.setResult(assignment);
-            result.setTime(end - start);
-            //    FeatJAR.log().info("Finished:"+analysis.info());
-        } catch (TimeoutException e) {
-            res.cancel(true);
-            result.setTime(Long.MAX_VALUE);
-            result.setResult(null);
-            //   FeatJAR.log().info("Timeout: "+analysis.info());
-        } catch (InterruptedException | ExecutionException e) {
-            e.printStackTrace();
-        } finally {
-            executorService.shutdownNow();
+            scheduler.await();
         }
+    }
 
-        return result;
+    private void evaluateModel(IResultWriter csvFile, String modelName, Pair<IFormula, Pair<List<String>, List<BiImplies>>> model) {
+        FeatJAR.log().info("Running preprocess evaluation for " + modelName);
+        IComputation<IFormula> formula = Computations.of(model.getKey());
+        Pair<BooleanClauseList, VariableMap> cnf = getCNF(modelPath.resolve(modelName), model.getKey());
+        IComputation<BooleanClauseList> cnfS = Computations.of(cnf.getKey());
+        VariableMap variableMap = cnf.getValue();
+        BooleanAssignment hiddenVariables = new BooleanAssignment(model.getValue().getKey().stream().mapToInt(x -> variableMap.get(x).get()).toArray());
+        ModalImplicationGraph modalImplicationGraph = cnfS
+                .map(MIGBuilder::new).compute();
+        int formulaSize = formula.getChildrenCount();
+        int hiddenVariablesSize = hiddenVariables.size();
+        // initialize data
+        assert formulaSize == formula.getChildrenCount();
+        assert hiddenVariablesSize == hiddenVariables.size();
+        IFormula formula_simple = new And( cnfS.compute().stream().map(x -> new Or(x.stream().mapToObj(y -> new Literal(y>0,variableMap.get(Math.abs(y)).get())).collect(Collectors.toList()))).collect(Collectors.toList()));
+
+        // initialise complete indeterminate analysis
+        ComputeIndeterminate normalIndeterminate = new ComputeIndeterminate(cnfS);
+        List<IFormula> andChilds = (List<IFormula>) formula.compute().getChildren();
+        PreprocessIffSort preprocessIffSort = new PreprocessIffSort(Computations.of(new And(andChilds)));
+        PreprocessImGraph preprocessImGraph = new PreprocessImGraph(Computations.of(modalImplicationGraph));
+        ComputeBiImplicationFormula biImplicationFormula = new ComputeBiImplicationFormula(formula_simple, variableMap);
+        List<Result<BooleanAssignment>> result = new ArrayList<>();
+        result.add(runAnalysis(modelName + "/imp-IA", new Analysis(preprocessImGraph, variableMap, normalIndeterminate, hiddenVariables)));
+      //  result.add(runAnalysis(modelName + "/update-pre1-IA", new Analysis(biImplicationFormula, variableMap, preprocessIffSort, hiddenVariables)));
+        List<String> outputLine = result.stream().map(e -> {
+            if (e.getTime() == Long.MAX_VALUE) return "Timeout";
+            if (e.getResult() == null) return "Error";
+            return e.getResult().size() + "";
+        }).collect(Collectors.toList());
+        outputLine.add(0, modelName);
+        outputLine.add(1, hiddenVariablesSize + "");
+        outputLine.add(2, "");
+        result.forEach(e -> outputLine.addAll(getResourceColumns(e)));
+        csvFile.addLine(outputLine);
+        completeCell(csvFile, modelName, CELL_VARIANT, 0);
+        FeatJAR.log().info("Finished evaluation for " + modelName);
     }
 
-    private class Analysis implements Callable<BooleanAssignment> {
+
+    private class Analysis implements AnalysisExecutor.Task<BooleanAssignment> {
         ASAT4JAnalysis.Solution<BooleanAssignment> indeterminate;
         ComputeIndeterminate indeterminateAnalyse;
         IndeterminatePreprocessFormula preprocessF;
@@ -161,7 +147,7 @@ public class IndeterminatePreprocessEvaluation extends Evaluator {
         }
 
         @Override
-        public BooleanAssignment call() throws Exception {
+        public BooleanAssignment call(CancellationToken token) throws Exception {
             if (type == 0) {
                 return indeterminate
                         .set(ComputeIndeterminate.VARIABLES_OF_INTEREST, hiddenVariables)
@@ -171,9 +157,11 @@ public class IndeterminatePreprocessEvaluation extends Evaluator {
                         .set(IndeterminatePreprocess.VARIABLES_OF_INTEREST, hiddenVariables)
                         .compute();
             }else {
+                List<BiImplies> biImplies = formula
+                        .set(ComputeBiImplicationFormula.MAXIMUM_CLAUSE_SIZE,30).compute();
+                token.throwIfCancelled();
                 return  preprocessF.
-                                addBiImplies(formula
-                                    .set(ComputeBiImplicationFormula.MAXIMUM_CLAUSE_SIZE,30).compute())
+                                addBiImplies(biImplies)
                                 .set(IndeterminatePreprocess.VARIABLE_MAP, map)
                                 .set(IndeterminatePreprocess.VARIABLES_OF_INTEREST, hiddenVariables)
                                 .compute();
@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation;
+
+import de.featjar.base.FeatJAR;
+import de.featjar.evaluation.output.IResultWriter;
+import java.io.BufferedReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Merges the results of all shards and work queue workers in the current output path into a single data directory.
+ * The rows of all tables with the same name are written to one table, and the checkpoint journals are combined, so
+ * that the merged directory looks as if the evaluation had run on a single node.
+ * <p>
+ * A cell may have been evaluated more than once, for instance if a worker was considered stale while it was only
+ * slow, or died after writing its row but before journaling the cell. Therefore, only rows of cells in the merged
+ * journal are kept, and only one row per cell and table. The cell of a row is derived from the table: in tables
+ * whose first column is {@code id}, the row holds an iteration of the system named by the table, or, if the first
+ * field is not a number, the system itself. In tables with the columns {@code model} and {@code id}, the row names
+ * the system and the iteration. A table name may be prefixed by a variant and {@code _}. Rows of other tables are
+ * copied as they are.
+ */
+public class ShardMerger extends Evaluator {
+
+    private static final String SEPARATOR = ";";
+    private static final Pattern TABLE_PATTERN = Pattern.compile("(.+)-(\\d+)[.]csv");
+    private static final Pattern SHARD_PATTERN = Pattern.compile(".*-shard-(\\d+)-of-(\\d+)(-worker-.+)?");
+    private static final Pattern WORKER_PATTERN = Pattern.compile(".*-worker-.+");
+
+    @Override
+    public void runEvaluation() throws Exception {
+        List<Path> shardDirectories;
+        try (Stream<Path> directories = Files.list(csvPath.getParent())) {
+            shardDirectories = directories
+                    .filter(Files::isDirectory)
+                    .filter(p -> SHARD_PATTERN.matcher(p.getFileName().toString()).matches()
+                            || WORKER_PATTERN.matcher(p.getFileName().toString()).matches())
+                    .sorted(Comparator.comparing(p -> p.getFileName().toString()))
+                    .collect(Collectors.toList());
+        }
+        if (shardDirectories.isEmpty()) {
+            FeatJAR.log().info("No results of shards or workers found in " + csvPath.getParent());
+            return;
+        }
+        checkShards(shardDirectories);
+
+        Map<String, Set<String>> journals = new TreeMap<>();
+        for (Path shardDirectory : shardDirectories) {
+            try (Stream<Path> files = Files.list(shardDirectory)) {
+                for (Path journal : files.filter(p -> p.getFileName().toString().endsWith(".journal"))
+                        .collect(Collectors.toList())) {
+                    journals.computeIfAbsent(journal.getFileName().toString(), k -> new LinkedHashSet<>())
+                            .addAll(Files.readAllLines(journal, StandardCharsets.UTF_8));
+                }
+            }
+        }
+        // variants of the completed cells, by system and iteration
+        Map<String, Set<String>> completedCells = new HashMap<>();
+        for (Set<String> journal : journals.values()) {
+            for (String line : journal) {
+                String[] cell = line.trim().split(SEPARATOR, -1);
+                if (cell.length == 3) {
+                    completedCells
+                            .computeIfAbsent(cell[0] + SEPARATOR + cell[2], k -> new HashSet<>())
+                            .add(cell[1]);
+                }
+            }
+        }
+
+        Map<String, IResultWriter> writers = new HashMap<>();
+        Map<String, List<String>> headers = new HashMap<>();
+        Set<String> mergedRows = new HashSet<>();
+        int droppedRowCount = 0;
+        for (Path shardDirectory : shardDirectories) {
+            for (Path table : getTables(shardDirectory)) {
+                Matcher matcher = TABLE_PATTERN.matcher(table.getFileName().toString());
+                matcher.matches();
+                droppedRowCount += mergeTable(table, matcher.group(1), writers, headers, completedCells, mergedRows);
+            }
+        }
+        if (droppedRowCount > 0) {
+            FeatJAR.log().info("Dropped %d rows of cells that were not journaled or evaluated twice", droppedRowCount);
+        }
+        for (IResultWriter writer : writers.values()) {
+            writer.flush();
+        }
+        for (Map.Entry<String, Set<String>> journal : journals.entrySet()) {
+            List<String> lines = journal.getValue().stream()
+                    .filter(line -> !line.isBlank())
+                    .collect(Collectors.toList());
+            Files.write(csvPath.resolve(journal.getKey()), lines, StandardCharsets.UTF_8);
+        }
+        FeatJAR.log().info("Merged %d shards into %s", shardDirectories.size(), csvPath);
+    }
+
+    private void checkShards(List<Path> shardDirectories) {
+        Map<Integer, Set<Integer>> shardsByCount = new TreeMap<>();
+        for (Path shardDirectory : shardDirectories) {
+            Matcher matcher = SHARD_PATTERN.matcher(shardDirectory.getFileName().toString());
+            if (!matcher.matches()) {
+                continue;
+            }
+            shardsByCount
+                    .computeIfAbsent(Integer.parseInt(matcher.group(2)), k -> new TreeSet<>())
+                    .add(Integer.parseInt(matcher.group(1)));
+        }
+        if (shardsByCount.size() > 1) {
+            FeatJAR.log().warning("Merging shards of different shard counts: " + shardsByCount.keySet());
+        }
+        for (Map.Entry<Integer, Set<Integer>> shards : shardsByCount.entrySet()) {
+            if (shards.getValue().size() < shards.getKey()) {
+                FeatJAR.log().warning("Found only shards %s of %d", shards.getValue(), shards.getKey());
+            }
+        }
+    }
+
+    private static List<Path> getTables(Path directory) throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> TABLE_PATTERN.matcher(p.getFileName().toString()).matches())
+                    .sorted(Comparator.comparing((Path p) -> {
+                                Matcher matcher = TABLE_PATTERN.matcher(p.getFileName().toString());
+                                matcher.matches();
+                                return matcher.group(1);
+                            })
+                            .thenComparingInt(p -> {
+                                Matcher matcher = TABLE_PATTERN.matcher(p.getFileName().toString());
+                                matcher.matches();
+                                return Integer.parseInt(matcher.group(2));
+                            }))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Copies the rows of a table that belong to completed cells not merged before.
+     *
+     * @return the number of dropped rows
+     */
+    private int mergeTable(
+            Path table,
+            String name,
+            Map<String, IResultWriter> writers,
+            Map<String, List<String>> headers,
+            Map<String, Set<String>> completedCells,
+            Set<String> mergedRows)
+            throws Exception {
+        try (BufferedReader reader = Files.newBufferedReader(table, StandardCharsets.UTF_8)) {
+            String headerLine = reader.readLine();
+            if (headerLine == null) {
+                return 0;
+            }
+            List<String> header = Arrays.asList(headerLine.split(SEPARATOR, -1));
+            List<String> mergedHeader = headers.putIfAbsent(name, header);
+            if (mergedHeader == null) {
+                writers.put(name, addCSVWriter(name, header.toArray(new String[0])));
+            } else if (!mergedHeader.equals(header)) {
+                FeatJAR.log().error("Skipping %s, its header differs from other tables named %s", table, name);
+                return 0;
+            }
+            IResultWriter writer = writers.get(name);
+            int systemColumn = header.indexOf("model");
+            int iterationColumn = header.indexOf("id");
+            boolean cellTable = iterationColumn == 0 || (systemColumn >= 0 && iterationColumn >= 0);
+            int droppedRowCount = 0;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                List<String> row = new ArrayList<>(Arrays.asList(line.split(SEPARATOR, -1)));
+                if (cellTable) {
+                    String cell = getCompletedCell(name, row, systemColumn, iterationColumn, completedCells);
+                    if (cell == null || !mergedRows.add(name + SEPARATOR + cell)) {
+                        droppedRowCount++;
+                        continue;
+                    }
+                }
+                writer.addLine(row);
+            }
+            return droppedRowCount;
+        }
+    }
+
+    /**
+     * Returns the journaled cell the given row belongs to.
+     *
+     * @return the cell as {@code system;variant;iteration}, or {@code null} if the row belongs to no completed cell
+     */
+    private static String getCompletedCell(
+            String table,
+            List<String> row,
+            int systemColumn,
+            int iterationColumn,
+            Map<String, Set<String>> completedCells) {
+        String system;
+        String iteration;
+        if (iterationColumn == 0 && isIteration(row.get(0))) {
+            system = table;
+            iteration = row.get(0);
+        } else if (iterationColumn == 0) {
+            system = row.get(0);
+            iteration = "0";
+        } else if (systemColumn < row.size() && iterationColumn < row.size()) {
+            system = row.get(systemColumn);
+            iteration = row.get(iterationColumn);
+        } else {
+            return null;
+        }
+        // tables of forked cells are named variant_system or variant_processes
+        int prefixEnd = table.indexOf('_');
+        if (prefixEnd > 0) {
+            String variant = table.substring(0, prefixEnd);
+            String unprefixedSystem = system.equals(table) ? table.substring(prefixEnd + 1) : system;
+            Set<String> variants = completedCells.get(unprefixedSystem + SEPARATOR + iteration);
+            if (variants != null && variants.contains(variant)) {
+                return unprefixedSystem + SEPARATOR + variant + SEPARATOR + iteration;
+            }
+        }
+        Set<String> variants = completedCells.get(system + SEPARATOR + iteration);
+        if (variants == null) {
+            return null;
+        }
+        return system + SEPARATOR + String.join(",", new TreeSet<>(variants)) + SEPARATOR + iteration;
+    }
+
+    private static boolean isIteration(String field) {
+        try {
+            Integer.parseInt(field);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
@@ -5,8 +5,9 @@ import de.featjar.base.cli.Option;
 import de.featjar.base.computation.Computations;
 import de.featjar.base.computation.IComputation;
 import de.featjar.base.data.Pair;
-import de.featjar.base.io.csv.CSVFile;
+import de.featjar.evaluation.output.IResultWriter;
 import de.featjar.evaluation.process.Result;
+import de.featjar.evaluation.util.AdaptiveRepetition;
 import de.featjar.evaluation.util.ModelReader;
 import de.featjar.formula.analysis.VariableMap;
 import de.featjar.formula.analysis.bool.*;
@@ -19,8 +20,6 @@ import de.featjar.formula.io.FormulaFormats;
 import de.featjar.formula.io.HiddenFormulaFormats;
 import de.featjar.formula.structure.formula.IFormula;
 import de.featjar.formula.structure.formula.connective.BiImplies;
-import de.featjar.formula.transformer.ComputeCNFFormula;
-import de.featjar.formula.transformer.ComputeNNFFormula;
 
 import java.io.File;
 import java.nio.file.Path;
@@ -31,9 +30,10 @@ import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 public class SlicingEvaluation extends Evaluator {
-    private long timeoutV ;
+    private static final String CELL_VARIANT = "IAS";
      private Pair< IFormula, Pair<List<String>,List< BiImplies >>> infoModel;
      private String modelName;
+     private Path modelFile;
      private String date;
 
     Option<String> TIME_OPTION = new Option<>("date", Option.StringParser,"");
@@ -41,11 +41,11 @@ public class SlicingEvaluation extends Evaluator {
     @Override
     public void init() throws Exception {
         super.init();
-        timeoutV = optionParser.getResult(timeout).get();
         Path file = optionParser.getResult(INPUT_OPTION).get();
         ModelReader<Pair<IFormula, Pair<List<String>, List<BiImplies>>>> modelReader = new ModelReader<>(file, HiddenFormulaFormats.getInstance());
         infoModel = modelReader.loadFile(modelReader.getPathToFiles()).get();
         modelName = file.getFileName().toString();
+        modelFile = file;
         date = optionParser.getResult(TIME_OPTION).get();
 
     }
@@ -53,53 +53,66 @@ public class SlicingEvaluation extends Evaluator {
     @Override
     protected void initSubPaths() {
         super.initSubPaths();
-        csvPath = outputPath.resolve("data").resolve("data-"+date);
+        csvPath = outputPath.resolve("data").resolve(getDataDirectoryName(date));
     }
 
     @Override
     public List<Option<?>> getOptions() {
-        return List.of(
-                INPUT_OPTION,
-                OUTPUT_OPTION,
-                modelsPathOption,
-                resourcesPathOption,
-                timeout,
-                randomSeed,
-                systemsOption,
-                systemIterationsOption,
-                algorithmIterationsOption,
-                TIME_OPTION);
+        List<Option<?>> options = new ArrayList<>(super.getOptions());
+        options.add(TIME_OPTION);
+        return options;
     }
 
     @Override
     protected void runEvaluation() throws Exception {
+            List<Integer> indexes = optionParser.getResult(algorithmIterationsOption).get().stream()
+                    .filter(i -> isInShard(modelName, i))
+                    .filter(i -> !isCellCompleted(modelName, CELL_VARIANT, i))
+                    .collect(Collectors.toList());
+            if (indexes.isEmpty()) {
+                FeatJAR.log().info("Skipping completed evaluation for "+modelName);
+                return;
+            }
             FeatJAR.log().info("Running evaluation for "+modelName);
-            CSVFile csvFile = this.addCSVWriter(modelName, "id", "IAS");
-            IComputation<IFormula> formula_h = Computations.of(infoModel.getKey());
-            ComputeBooleanRepresentation<IFormula, IBooleanRepresentation> cnf =
-                formula_h.map(ComputeNNFFormula::new)
-                        .map(ComputeCNFFormula::new)
-                        .map(ComputeBooleanRepresentation::new);
-            VariableMap variableMap = cnf.map(Computations::getValue).compute();
+            List<String> header = new ArrayList<>(List.of("id", "IAS"));
+            header.addAll(getResourceHeader("IAS"));
+            IResultWriter csvFile = this.addCSVWriter(modelName, header.toArray(new String[0]));
+            Pair<BooleanClauseList, VariableMap> cnf = getCNF(modelFile, infoModel.getKey());
+            VariableMap variableMap = cnf.getValue();
             BooleanAssignment hiddenVariables = new BooleanAssignment(infoModel.getValue().getKey().stream().mapToInt(x -> variableMap.get(x).get()).toArray());
-            BooleanClauseList clauses_h= cnf.map(Computations::getKey).cast(BooleanClauseList.class).compute();
-            List<BooleanClause> temp = clauses_h.stream().collect(Collectors.toSet()).stream().map(BooleanClause::new).collect(Collectors.toList());
-            IComputation<BooleanClauseList> clauses = Computations.of(new BooleanClauseList(temp,clauses_h.getVariableCount()));
-            List<Integer> indexes = optionParser.getResult(algorithmIterationsOption).get();
+            IComputation<BooleanClauseList> clauses = Computations.of(cnf.getKey());
+            AdaptiveRepetition repetition = createAdaptiveRepetition(CELL_VARIANT);
             for (int i : indexes) {
+                if (repetition != null && repetition.isDone()) {
+                    skipCell(modelName, CELL_VARIANT, i);
+                    continue;
+                }
+                if (!claimCell(modelName, CELL_VARIANT, i)) {
+                    continue;
+                }
                 // initialize data
 
                 List<Result<BooleanAssignment>> result = new ArrayList<>();
-                result.add(compute(clauses,hiddenVariables,csvFile));
+                result.add(compute(clauses,hiddenVariables,i));
                 List<String> outputLine = result.stream().map(e -> {
+                            if (e.getTime() == Long.MAX_VALUE) return "Timeout";
+                            if (e.getTime() == Result.INVALID_TIME) return "Error";
                             return TimeUnit.MILLISECONDS.convert(e.getTime(), TimeUnit.NANOSECONDS) + "";
                         }
                 ).collect(Collectors.toList());
                 outputLine.add(0,i+"");
+                result.forEach(e -> outputLine.addAll(getResourceColumns(e)));
 
                 csvFile.addLine(outputLine);
+                completeCell(csvFile, modelName, CELL_VARIANT, i);
+                // a failed analysis has no time, so it is not a measurement
+                if (repetition != null && result.get(0).getTime() != Result.INVALID_TIME) {
+                    repetition.add(result.get(0).getTime());
+                }
+            }
+            if (repetition != null && repetition.getRepetitions() > 0) {
+                writePrecision(modelName, repetition);
             }
-            csvFile.flush();
             FeatJAR.log().info("Finished evaluation for "+modelName);
 
 
@@ -107,38 +120,9 @@ public class SlicingEvaluation extends Evaluator {
 
 
 
-    private Result<BooleanAssignment> compute(IComputation<BooleanClauseList> clauses, BooleanAssignment hiddenVariables,CSVFile csvFile){
-        Result<BooleanAssignment> result = new Result<>();
-        long start, end;
-        start = System.nanoTime();
-        ExecutorService executorService = Executors.newSingleThreadExecutor();
-        Future<BooleanAssignment> res =  executorService.submit(()->{
-           return new ComputeIndeterminateSlicing(clauses).set(ComputeIndeterminateSlicing.VARIABLES_OF_INTEREST,hiddenVariables).compute();
-        });
-        try {
-            BooleanAssignment assignment;
-
-            assignment = res.get(timeoutV,TimeUnit.MINUTES);
-            end = System.nanoTime();
-            result.setResult(assignment);
-            result.setTime(end-start);
-        }catch (InterruptedException| ExecutionException e ){
-            e.printStackTrace();
-        } catch (TimeoutException e) {
-            res.cancel(true);
-            result.setTime(Long.MAX_VALUE);
-            result.setResult(null);
-            List<String> output = new ArrayList<>();
-            output.add(0,"");
-            output.add(1,"Timeout");
-            csvFile.addLine(output);
-            csvFile.flush();
-            System.exit(0);
-        } finally{
-            executorService.shutdownNow();
-        }
-
-        return result;
+    private Result<BooleanAssignment> compute(IComputation<BooleanClauseList> clauses, BooleanAssignment hiddenVariables,int iteration){
+        return runAnalysis(modelName + "/" + CELL_VARIANT + "/" + iteration, token ->
+                new ComputeIndeterminateSlicing(clauses).set(ComputeIndeterminateSlicing.VARIABLES_OF_INTEREST,hiddenVariables).compute());
     }
 
 
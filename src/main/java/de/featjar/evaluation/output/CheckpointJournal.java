@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.output;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only record of the evaluation cells whose results were already written.
+ * Each line of the journal file identifies one completed cell by its system, variant, and iteration.
+ */
+public class CheckpointJournal implements AutoCloseable {
+
+    private static final String SEPARATOR = ";";
+
+    private final Path journalFile;
+    private final Set<String> completedCells = ConcurrentHashMap.newKeySet();
+    private FileChannel channel;
+
+    public CheckpointJournal(Path journalFile) throws IOException {
+        this.journalFile = journalFile;
+        if (Files.isReadable(journalFile)) {
+            for (String line : Files.readAllLines(journalFile, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    completedCells.add(line.trim());
+                }
+            }
+        }
+    }
+
+    public Path getJournalFile() {
+        return journalFile;
+    }
+
+    public int getCompletedCount() {
+        return completedCells.size();
+    }
+
+    public boolean isCompleted(String system, String variant, int iteration) {
+        return completedCells.contains(getKey(system, variant, iteration));
+    }
+
+    /**
+     * Records a cell as completed. The entry is forced to disk before this method returns, so the corresponding
+     * rows must already have been flushed.
+     */
+    public synchronized void markCompleted(String system, String variant, int iteration) throws IOException {
+        String key = getKey(system, variant, iteration);
+        if (completedCells.add(key)) {
+            if (channel == null) {
+                channel = FileChannel.open(
+                        journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap((key + "\n").getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+
+    private String getKey(String system, String variant, int iteration) {
+        return system + SEPARATOR + variant + SEPARATOR + iteration;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.output;
+
+/**
+ * Layout of the binary columnar result files written by {@link ColumnarResultWriter}.
+ * <p>
+ * A file consists of a header, a sequence of chunks, and a footer. The header holds {@link #MAGIC} and
+ * {@link #VERSION}. Each chunk starts at a multiple of 8 bytes and is either a dictionary chunk or a block.
+ * A dictionary chunk holds {@link #DICTIONARY_MAGIC}, the dictionary it extends ({@link #SYSTEM_DICTIONARY} or
+ * {@link #VARIANT_DICTIONARY}), and the new names (an int count followed by length-prefixed UTF-8 strings).
+ * A block holds {@link #BLOCK_MAGIC}, its record count {@code n} (int), its capacity {@code c} (int), and four
+ * bytes of padding. Then it stores its records column by column, each column sized for {@code c} records:
+ * system ids (int), variant ids (int), iterations (int), and values (long). The footer holds the system
+ * dictionary, the variant dictionary, and the block index (offset and record count of each block), followed by
+ * the offset of the footer (long) and {@link #MAGIC} again. All numbers are little-endian.
+ * <p>
+ * A block is reserved with its full capacity and filled in place, its record count being written after the
+ * records. The footer is only written when the file is closed. A file without footer (e.g., after a crash) can be
+ * recovered by scanning the chunks up to the first one without magic.
+ */
+public final class ColumnarFormat {
+
+    public enum Column {
+        SYSTEM(Integer.BYTES),
+        VARIANT(Integer.BYTES),
+        ITERATION(Integer.BYTES),
+        VALUE(Long.BYTES);
+
+        private final int width;
+
+        Column(int width) {
+            this.width = width;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        /**
+         * Returns the offset of this column relative to the first column of a block with the given capacity.
+         */
+        public long getOffset(int capacity) {
+            long offset = 0;
+            for (Column column : values()) {
+                if (column == this) {
+                    break;
+                }
+                offset += (long) column.width * capacity;
+            }
+            return offset;
+        }
+    }
+
+    public static final int MAGIC = 0x464A4352;
+    public static final int VERSION = 3;
+    public static final int BLOCK_MAGIC = 0x424C4B31;
+    public static final int DICTIONARY_MAGIC = 0x44494354;
+    public static final int SYSTEM_DICTIONARY = 0;
+    public static final int VARIANT_DICTIONARY = 1;
+    public static final int HEADER_SIZE = 2 * Integer.BYTES;
+    public static final int BLOCK_HEADER_SIZE = 4 * Integer.BYTES;
+    public static final int TRAILER_SIZE = Long.BYTES + Integer.BYTES;
+    public static final int RECORD_SIZE = 3 * Integer.BYTES + Long.BYTES;
+
+    /**
+     * Returns the size of a block with the given capacity, including its header.
+     */
+    public static long getBlockSize(int capacity) {
+        return BLOCK_HEADER_SIZE + (long) RECORD_SIZE * capacity;
+    }
+
+    /**
+     * Returns the given size rounded up to a multiple of 8 bytes.
+     */
+    public static long getPaddedSize(long size) {
+        return (size + Long.BYTES - 1) / Long.BYTES * Long.BYTES;
+    }
+
+    /**
+     * Value stored for cells that do not contain a number (e.g., a timeout).
+     */
+    public static final long MISSING = Long.MIN_VALUE;
+
+    private ColumnarFormat() {}
+}
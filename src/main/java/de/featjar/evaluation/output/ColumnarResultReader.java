@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.output;
+
+import de.featjar.evaluation.output.ColumnarFormat.Column;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads a binary columnar result file written by {@link ColumnarResultWriter}.
+ * The file is memory-mapped and a column is read without touching the bytes of the other columns.
+ * Files without footer, whose writer was not closed, are recovered by scanning their chunks.
+ */
+public class ColumnarResultReader {
+
+    private final MappedByteBuffer buffer;
+    private final List<String> systems;
+    private final List<String> variants;
+    private final long[] blockOffsets;
+    private final int[] blockRecordCounts;
+    private final int[] blockCapacities;
+    private final int recordCount;
+    private final boolean complete;
+
+    public ColumnarResultReader(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.limit() < ColumnarFormat.HEADER_SIZE || buffer.getInt(0) != ColumnarFormat.MAGIC) {
+            throw new IOException("Not a columnar result file: " + path);
+        }
+        if (buffer.getInt(Integer.BYTES) != ColumnarFormat.VERSION) {
+            throw new IOException("Unsupported columnar result file version: " + path);
+        }
+        List<String> systemDictionary = new ArrayList<>();
+        List<String> variantDictionary = new ArrayList<>();
+        List<Long> offsets = new ArrayList<>();
+        List<Integer> recordCounts = new ArrayList<>();
+        complete = buffer.limit() >= ColumnarFormat.HEADER_SIZE + ColumnarFormat.TRAILER_SIZE
+                && buffer.getInt(buffer.limit() - Integer.BYTES) == ColumnarFormat.MAGIC;
+        if (complete) {
+            ByteBuffer footer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            footer.position((int) buffer.getLong(buffer.limit() - ColumnarFormat.TRAILER_SIZE));
+            readDictionary(footer, systemDictionary);
+            readDictionary(footer, variantDictionary);
+            int blockCount = footer.getInt();
+            for (int i = 0; i < blockCount; i++) {
+                offsets.add(footer.getLong());
+                recordCounts.add(footer.getInt());
+            }
+        } else {
+            scanBlocks(systemDictionary, variantDictionary, offsets, recordCounts);
+        }
+        systems = Collections.unmodifiableList(systemDictionary);
+        variants = Collections.unmodifiableList(variantDictionary);
+        blockOffsets = new long[offsets.size()];
+        blockRecordCounts = new int[offsets.size()];
+        blockCapacities = new int[offsets.size()];
+        int count = 0;
+        for (int i = 0; i < blockOffsets.length; i++) {
+            blockOffsets[i] = offsets.get(i);
+            blockRecordCounts[i] = recordCounts.get(i);
+            blockCapacities[i] = buffer.getInt((int) blockOffsets[i] + 2 * Integer.BYTES);
+            count += blockRecordCounts[i];
+        }
+        recordCount = count;
+    }
+
+    /**
+     * Collects all dictionary chunks and blocks up to the first chunk that is incomplete or exceeds the file.
+     * The records of a block are accepted if its record count is written and they lie within the file.
+     */
+    private void scanBlocks(
+            List<String> systemDictionary,
+            List<String> variantDictionary,
+            List<Long> offsets,
+            List<Integer> recordCounts) {
+        ByteBuffer chunks = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        chunks.position(ColumnarFormat.HEADER_SIZE);
+        try {
+            while (chunks.remaining() >= ColumnarFormat.BLOCK_HEADER_SIZE) {
+                int start = chunks.position();
+                int magic = chunks.getInt();
+                if (magic == ColumnarFormat.DICTIONARY_MAGIC) {
+                    int kind = chunks.getInt();
+                    List<String> names = new ArrayList<>();
+                    readDictionary(chunks, names);
+                    if (kind == ColumnarFormat.SYSTEM_DICTIONARY) {
+                        systemDictionary.addAll(names);
+                    } else if (kind == ColumnarFormat.VARIANT_DICTIONARY) {
+                        variantDictionary.addAll(names);
+                    } else {
+                        break;
+                    }
+                    chunks.position((int) (start + ColumnarFormat.getPaddedSize(chunks.position() - start)));
+                } else if (magic == ColumnarFormat.BLOCK_MAGIC) {
+                    int n = chunks.getInt();
+                    int capacity = chunks.getInt();
+                    if (n < 0 || capacity <= 0 || n > capacity) {
+                        break;
+                    }
+                    long columns = start + ColumnarFormat.BLOCK_HEADER_SIZE;
+                    long end = start + ColumnarFormat.getBlockSize(capacity);
+                    if (n > 0 && columns + Column.VALUE.getOffset(capacity) + (long) Long.BYTES * n > chunks.limit()) {
+                        break;
+                    }
+                    if (n > 0) {
+                        offsets.add((long) start);
+                        recordCounts.add(n);
+                    }
+                    if (end > chunks.limit()) {
+                        break;
+                    }
+                    chunks.position((int) end);
+                } else {
+                    break;
+                }
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+            // the last chunk is truncated
+        }
+    }
+
+    private static void readDictionary(ByteBuffer buffer, List<String> dictionary) {
+        int size = buffer.getInt();
+        for (int i = 0; i < size; i++) {
+            byte[] entry = new byte[buffer.getInt()];
+            buffer.get(entry);
+            dictionary.add(new String(entry, StandardCharsets.UTF_8));
+        }
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Returns whether the file has a footer. Otherwise, it was recovered from its blocks.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public List<String> getSystems() {
+        return systems;
+    }
+
+    public List<String> getVariants() {
+        return variants;
+    }
+
+    /**
+     * Reads one of the int columns ({@link Column#SYSTEM}, {@link Column#VARIANT}, or {@link Column#ITERATION}).
+     * System and variant ids are indices into {@link #getSystems()} and {@link #getVariants()}.
+     */
+    public int[] readIntColumn(Column column) {
+        if (column.getWidth() != Integer.BYTES) {
+            throw new IllegalArgumentException(column + " is not an int column");
+        }
+        int[] values = new int[recordCount];
+        int index = 0;
+        for (int i = 0; i < blockOffsets.length; i++) {
+            int n = blockRecordCounts[i];
+            columnSlice(i, column).asIntBuffer().get(values, index, n);
+            index += n;
+        }
+        return values;
+    }
+
+    /**
+     * Reads the value column. Cells without a number are {@link ColumnarFormat#MISSING}.
+     */
+    public long[] readValueColumn() {
+        long[] values = new long[recordCount];
+        int index = 0;
+        for (int i = 0; i < blockOffsets.length; i++) {
+            int n = blockRecordCounts[i];
+            columnSlice(i, Column.VALUE).asLongBuffer().get(values, index, n);
+            index += n;
+        }
+        return values;
+    }
+
+    private ByteBuffer columnSlice(int block, Column column) {
+        int n = blockRecordCounts[block];
+        ByteBuffer slice = buffer.duplicate();
+        int start = (int) (blockOffsets[block]
+                + ColumnarFormat.BLOCK_HEADER_SIZE
+                + column.getOffset(blockCapacities[block]));
+        slice.position(start);
+        slice.limit(start + column.getWidth() * n);
+        return slice.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.output;
+
+import de.featjar.evaluation.output.ColumnarFormat.Column;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Appends result rows to a binary columnar file (see {@link ColumnarFormat}).
+ * Each row is stored as one record per value column, so a row {@code id;a;b} with header {@code id;A;B} becomes
+ * the records {@code (system, A, id, a)} and {@code (system, B, id, b)}. If the first field of a row is an integer,
+ * it is used as iteration and the system is the table name. Otherwise, the first field names the system.
+ * <p>
+ * Records are collected in blocks of {@link #BLOCK_SIZE} records. A block is reserved in the file when it gets its
+ * first record and is filled in place. Each {@link #flush()} writes the records added since the last flush with
+ * plain channel writes and forces the file once, so that the records can be recovered by
+ * {@link ColumnarResultReader} even if the footer is never written by {@link #close()}.
+ * This class is not meant to be shared between threads, {@link ResultSink} calls it only from its writer thread.
+ */
+public class ColumnarResultWriter implements IResultWriter, AutoCloseable {
+
+    private static final int BLOCK_SIZE = 4096;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final String tableName;
+    private final String[] header;
+
+    private final Map<String, Integer> systemIds = new HashMap<>();
+    private final List<String> systems = new ArrayList<>();
+    private final Map<String, Integer> variantIds = new HashMap<>();
+    private final List<String> variants = new ArrayList<>();
+
+    private final int[] blockSystems = new int[BLOCK_SIZE];
+    private final int[] blockVariants = new int[BLOCK_SIZE];
+    private final int[] blockIterations = new int[BLOCK_SIZE];
+    private final long[] blockValues = new long[BLOCK_SIZE];
+    private int blockRecordCount;
+    private int writtenRecordCount;
+    private long blockStart = -1;
+
+    private final List<Long> blockOffsets = new ArrayList<>();
+    private final List<Integer> blockRecordCounts = new ArrayList<>();
+    private int writtenSystemCount;
+    private int writtenVariantCount;
+    private long position;
+    private ByteBuffer scratch = ByteBuffer.allocate(BLOCK_SIZE * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    private boolean closed;
+
+    /**
+     * Creates a new file {@code tableName-i.col} in the given directory, where {@code i} is the first unused index.
+     */
+    public static ColumnarResultWriter create(Path directory, String tableName, String... header) throws IOException {
+        for (int index = 0; ; index++) {
+            Path path = directory.resolve(tableName + "-" + index + ".col");
+            try {
+                FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                return new ColumnarResultWriter(path, channel, tableName, header);
+            } catch (FileAlreadyExistsException e) {
+                // try next index
+            }
+        }
+    }
+
+    private ColumnarResultWriter(Path path, FileChannel channel, String tableName, String[] header)
+            throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.tableName = tableName;
+        this.header = header;
+        ByteBuffer buffer = scratch(ColumnarFormat.HEADER_SIZE);
+        buffer.putInt(ColumnarFormat.MAGIC);
+        buffer.putInt(ColumnarFormat.VERSION);
+        write(buffer, 0);
+        position = ColumnarFormat.HEADER_SIZE;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Adds the records of the given row. A block that becomes full is written, but not forced to disk.
+     *
+     * @throws IllegalStateException if a full block could not be written
+     */
+    @Override
+    public void addLine(List<String> line) {
+        if (closed || line.isEmpty()) {
+            return;
+        }
+        String key = line.get(0);
+        int systemId;
+        int iteration;
+        try {
+            iteration = Integer.parseInt(key);
+            systemId = getId(tableName, systemIds, systems);
+        } catch (NumberFormatException e) {
+            iteration = 0;
+            systemId = getId(key, systemIds, systems);
+        }
+        for (int i = 1; i < line.size(); i++) {
+            blockSystems[blockRecordCount] = systemId;
+            blockVariants[blockRecordCount] = getId(i < header.length ? header[i] : "", variantIds, variants);
+            blockIterations[blockRecordCount] = iteration;
+            blockValues[blockRecordCount] = parseValue(line.get(i));
+            if (++blockRecordCount == BLOCK_SIZE) {
+                try {
+                    writeRecords();
+                } catch (IOException e) {
+                    throw new IllegalStateException("Could not write to " + path, e);
+                }
+            }
+        }
+    }
+
+    private static int getId(String name, Map<String, Integer> ids, List<String> dictionary) {
+        return ids.computeIfAbsent(name, n -> {
+            dictionary.add(n);
+            return dictionary.size() - 1;
+        });
+    }
+
+    private static long parseValue(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return ColumnarFormat.MISSING;
+        }
+    }
+
+    private ByteBuffer scratch(int size) {
+        if (scratch.capacity() < size) {
+            scratch = ByteBuffer.allocate(Math.max(size, 2 * scratch.capacity())).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        scratch.clear();
+        scratch.limit(size);
+        return scratch;
+    }
+
+    private void write(ByteBuffer buffer, long offset) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            offset += channel.write(buffer, offset);
+        }
+    }
+
+    /**
+     * Writes new dictionary entries and the records added since the last call, without forcing them to disk.
+     * The record count of the block is written last, so that a partially written block is read as before.
+     */
+    private void writeRecords() throws IOException {
+        writeDictionary(ColumnarFormat.SYSTEM_DICTIONARY, systems.subList(writtenSystemCount, systems.size()));
+        writtenSystemCount = systems.size();
+        writeDictionary(ColumnarFormat.VARIANT_DICTIONARY, variants.subList(writtenVariantCount, variants.size()));
+        writtenVariantCount = variants.size();
+        if (blockRecordCount == writtenRecordCount) {
+            return;
+        }
+        if (blockStart < 0) {
+            blockStart = position;
+            position += ColumnarFormat.getBlockSize(BLOCK_SIZE);
+            ByteBuffer buffer = scratch(ColumnarFormat.BLOCK_HEADER_SIZE);
+            buffer.putInt(ColumnarFormat.BLOCK_MAGIC);
+            buffer.putInt(0);
+            buffer.putInt(BLOCK_SIZE);
+            buffer.putInt(0);
+            write(buffer, blockStart);
+        }
+        int from = writtenRecordCount;
+        int n = blockRecordCount - from;
+        long columns = blockStart + ColumnarFormat.BLOCK_HEADER_SIZE;
+        ByteBuffer buffer = scratch(n * Integer.BYTES);
+        buffer.asIntBuffer().put(blockSystems, from, n);
+        buffer.position(buffer.limit());
+        write(buffer, columns + Column.SYSTEM.getOffset(BLOCK_SIZE) + (long) from * Integer.BYTES);
+        buffer = scratch(n * Integer.BYTES);
+        buffer.asIntBuffer().put(blockVariants, from, n);
+        buffer.position(buffer.limit());
+        write(buffer, columns + Column.VARIANT.getOffset(BLOCK_SIZE) + (long) from * Integer.BYTES);
+        buffer = scratch(n * Integer.BYTES);
+        buffer.asIntBuffer().put(blockIterations, from, n);
+        buffer.position(buffer.limit());
+        write(buffer, columns + Column.ITERATION.getOffset(BLOCK_SIZE) + (long) from * Integer.BYTES);
+        buffer = scratch(n * Long.BYTES);
+        buffer.asLongBuffer().put(blockValues, from, n);
+        buffer.position(buffer.limit());
+        write(buffer, columns + Column.VALUE.getOffset(BLOCK_SIZE) + (long) from * Long.BYTES);
+        buffer = scratch(Integer.BYTES);
+        buffer.putInt(blockRecordCount);
+        write(buffer, blockStart + Integer.BYTES);
+        writtenRecordCount = blockRecordCount;
+        if (blockRecordCount == BLOCK_SIZE) {
+            blockOffsets.add(blockStart);
+            blockRecordCounts.add(blockRecordCount);
+            blockStart = -1;
+            blockRecordCount = 0;
+            writtenRecordCount = 0;
+        }
+    }
+
+    private void writeDictionary(int kind, List<String> names) throws IOException {
+        if (names.isEmpty()) {
+            return;
+        }
+        byte[][] encoded = encode(names);
+        int size = (int) ColumnarFormat.getPaddedSize(2 * Integer.BYTES + getDictionarySize(encoded));
+        ByteBuffer buffer = scratch(size);
+        buffer.putInt(ColumnarFormat.DICTIONARY_MAGIC);
+        buffer.putInt(kind);
+        putDictionary(buffer, encoded);
+        buffer.position(size);
+        write(buffer, position);
+        position += size;
+    }
+
+    /**
+     * Writes the records added since the last flush and forces the file to disk once.
+     *
+     * @throws IOException if the records could not be written
+     */
+    void force() throws IOException {
+        if (!closed) {
+            writeRecords();
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Writes the records added since the last flush and forces them to disk.
+     *
+     * @throws IllegalStateException if the records could not be written
+     */
+    @Override
+    public void flush() {
+        try {
+            force();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write to " + path, e);
+        }
+    }
+
+    @Override
+    public void commit(Runnable onCommit) {
+        flush();
+        onCommit.run();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            writeRecords();
+            if (blockStart >= 0) {
+                blockOffsets.add(blockStart);
+                blockRecordCounts.add(blockRecordCount);
+            }
+            byte[][] encodedSystems = encode(systems);
+            byte[][] encodedVariants = encode(variants);
+            long footerSize = getDictionarySize(encodedSystems)
+                    + getDictionarySize(encodedVariants)
+                    + Integer.BYTES
+                    + (long) blockOffsets.size() * (Long.BYTES + Integer.BYTES)
+                    + ColumnarFormat.TRAILER_SIZE;
+            long footerOffset = position;
+            ByteBuffer buffer = scratch((int) footerSize);
+            putDictionary(buffer, encodedSystems);
+            putDictionary(buffer, encodedVariants);
+            buffer.putInt(blockOffsets.size());
+            for (int i = 0; i < blockOffsets.size(); i++) {
+                buffer.putLong(blockOffsets.get(i));
+                buffer.putInt(blockRecordCounts.get(i));
+            }
+            buffer.putLong(footerOffset);
+            buffer.putInt(ColumnarFormat.MAGIC);
+            write(buffer, footerOffset);
+            channel.force(false);
+        } finally {
+            closed = true;
+            channel.close();
+        }
+    }
+
+    private static byte[][] encode(List<String> dictionary) {
+        byte[][] encoded = new byte[dictionary.size()][];
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = dictionary.get(i).getBytes(StandardCharsets.UTF_8);
+        }
+        return encoded;
+    }
+
+    private static long getDictionarySize(byte[][] encoded) {
+        long size = Integer.BYTES;
+        for (byte[] entry : encoded) {
+            size += Integer.BYTES + entry.length;
+        }
+        return size;
+    }
+
+    private static void putDictionary(ByteBuffer buffer, byte[][] encoded) {
+        buffer.putInt(encoded.length);
+        for (byte[] entry : encoded) {
+            buffer.putInt(entry.length);
+            buffer.put(entry);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.output;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes result rows to the standard output of a forked evaluation, from where they are collected by the parent
+ * process. Each header and row is printed as a single tab-separated line starting with a marker, so that it can be
+ * told apart from log output.
+ */
+public class ForkedResultWriter implements IResultWriter {
+
+    public static final String HEADER_MARKER = "#featjar-header";
+    public static final String ROW_MARKER = "#featjar-row";
+
+    private final PrintStream out;
+    private final String table;
+
+    public ForkedResultWriter(PrintStream out, String table, String... header) {
+        this.out = out;
+        this.table = table;
+        print(HEADER_MARKER, Arrays.asList(header));
+    }
+
+    /**
+     * Parses a line printed by a forked result writer.
+     *
+     * @return the marker, the table, and the fields of the line, or {@code null} if the line is not a result line
+     */
+    public static List<String> parse(String line) {
+        if (!line.startsWith(HEADER_MARKER + "\t") && !line.startsWith(ROW_MARKER + "\t")) {
+            return null;
+        }
+        return new ArrayList<>(Arrays.asList(line.split("\t", -1)));
+    }
+
+    @Override
+    public void addLine(List<String> line) {
+        print(ROW_MARKER, line);
+    }
+
+    @Override
+    public void flush() {
+        out.flush();
+    }
+
+    @Override
+    public void commit(Runnable onCommit) {
+        out.flush();
+        onCommit.run();
+    }
+
+    private void print(String marker, List<String> fields) {
+        StringBuilder line = new StringBuilder(marker).append('\t').append(table);
+        for (String field : fields) {
+            line.append('\t').append(field == null ? "" : field.replace('\t', ' ').replace('\n', ' '));
+        }
+        out.println(line);
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.output;
+
+import java.util.List;
+
+/**
+ * Receives the rows of one result table.
+ * Implementations must be safe to use from several threads.
+ */
+public interface IResultWriter {
+
+    void addLine(List<String> line);
+
+    /**
+     * Blocks until all lines added so far are written to disk.
+     */
+    void flush();
+
+    /**
+     * Runs the given action once all lines added so far are written to disk.
+     * In contrast to {@link #flush()}, the calling thread does not wait for the write.
+     *
+     * @param onCommit the action to run
+     */
+    void commit(Runnable onCommit);
+}
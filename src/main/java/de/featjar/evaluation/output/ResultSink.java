@@ -0,0 +1,338 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.output;
+
+import de.featjar.base.FeatJAR;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Writes the rows of all result tables in a directory from a single background thread.
+ * Rows are put into a lock-free queue by the evaluation threads and written in batches, with one fsync per batch
+ * and table. Table files are numbered per name ({@code name-0.csv}, {@code name-1.csv}, ...), the next free number
+ * is determined by a single scan of the directory when the sink is opened.
+ * Optionally, rows are also stored in binary columnar files next to the CSV files. These are written by the same
+ * thread and forced once per batch before the CSV file, so a commit runs only when the rows are in both files.
+ */
+public class ResultSink implements AutoCloseable {
+
+    private static final String SEPARATOR = ";";
+    private static final Pattern FILE_NAME_PATTERN = Pattern.compile("(.+)-(\\d+)[.]csv");
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final int MAXIMUM_BATCH_SIZE = 4096;
+
+    private static final class Line {
+        private final SinkWriter writer;
+        private final List<String> fields;
+        // the header is only written to the CSV file, the columnar writer gets it on creation
+        private final boolean header;
+
+        private Line(SinkWriter writer, List<String> fields, boolean header) {
+            this.writer = writer;
+            this.fields = fields;
+            this.header = header;
+        }
+    }
+
+    private static final class Commit {
+        private final SinkWriter writer;
+        private final Runnable onCommit;
+
+        private Commit(SinkWriter writer, Runnable onCommit) {
+            this.writer = writer;
+            this.onCommit = onCommit;
+        }
+    }
+
+    private final class SinkWriter implements IResultWriter {
+        private final Path path;
+        private final FileChannel channel;
+        private final StringBuilder pending = new StringBuilder();
+        private ColumnarResultWriter columnarWriter;
+        // set once a write failed, as it is unknown which rows reached the disk
+        private boolean failed;
+
+        private SinkWriter(Path path, FileChannel channel) {
+            this.path = path;
+            this.channel = channel;
+        }
+
+        @Override
+        public void addLine(List<String> line) {
+            enqueue(new Line(this, new ArrayList<>(line), false));
+        }
+
+        @Override
+        public void flush() {
+            awaitCommit();
+        }
+
+        @Override
+        public void commit(Runnable onCommit) {
+            enqueue(new Commit(this, onCommit));
+            LockSupport.unpark(writerThread);
+        }
+
+        private void append(List<String> fields, boolean header) {
+            pending.append(String.join(SEPARATOR, fields)).append('\n');
+            if (columnarWriter != null && !header && !failed) {
+                try {
+                    columnarWriter.addLine(fields);
+                } catch (IllegalStateException e) {
+                    failed = true;
+                    FeatJAR.log().error(e);
+                }
+            }
+        }
+
+        private void write() throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(pending.toString().getBytes(StandardCharsets.UTF_8));
+            pending.setLength(0);
+            if (failed) {
+                return;
+            }
+            if (columnarWriter != null) {
+                columnarWriter.force();
+            }
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+
+    private final Path directory;
+    private final Map<String, Integer> nextFileIndices = new HashMap<>();
+    private final List<SinkWriter> writers = new ArrayList<>();
+    private final List<ColumnarResultWriter> columnarWriters = new ArrayList<>();
+    private boolean columnarOutput;
+    private final ConcurrentLinkedQueue<Object> queue = new ConcurrentLinkedQueue<>();
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private final Thread writerThread;
+    private final Thread shutdownHook;
+    private volatile boolean closed;
+
+    public ResultSink(Path directory) throws IOException {
+        this.directory = directory;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.csv")) {
+            for (Path file : files) {
+                Matcher matcher = FILE_NAME_PATTERN.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    int nextIndex = Integer.parseInt(matcher.group(2)) + 1;
+                    nextFileIndices.merge(matcher.group(1), nextIndex, Math::max);
+                }
+            }
+        }
+        writerThread = new Thread(this::drain, "result-sink");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        shutdownHook = new Thread(this::close, "result-sink-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    public boolean isColumnarOutput() {
+        return columnarOutput;
+    }
+
+    /**
+     * Sets whether new writers also store their rows in a binary columnar file (see {@link ColumnarResultWriter}).
+     */
+    public void setColumnarOutput(boolean columnarOutput) {
+        this.columnarOutput = columnarOutput;
+    }
+
+    public IResultWriter createWriter(String fileName, String... header) throws IOException {
+        SinkWriter writer;
+        synchronized (nextFileIndices) {
+            int index = nextFileIndices.getOrDefault(fileName, 0);
+            while (true) {
+                Path path = directory.resolve(fileName + "-" + index++ + ".csv");
+                try {
+                    FileChannel channel =
+                            FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                    writer = new SinkWriter(path, channel);
+                    break;
+                } catch (FileAlreadyExistsException e) {
+                    // written by another process, try next index
+                }
+            }
+            nextFileIndices.put(fileName, index);
+        }
+        if (columnarOutput) {
+            // the header is enqueued after this assignment, so the writer thread sees the columnar writer
+            writer.columnarWriter = ColumnarResultWriter.create(directory, fileName, header);
+        }
+        synchronized (writers) {
+            writers.add(writer);
+            if (writer.columnarWriter != null) {
+                columnarWriters.add(writer.columnarWriter);
+            }
+        }
+        enqueue(new Line(writer, List.of(header), true));
+        return writer;
+    }
+
+    private void enqueue(Object item) {
+        // producers share the read lock, so that close() cannot set the flag between the check and the offer
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Result sink is already closed");
+            }
+            queue.offer(item);
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    private void awaitCommit() {
+        CountDownLatch latch = new CountDownLatch(1);
+        enqueue(new Commit(null, latch::countDown));
+        LockSupport.unpark(writerThread);
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        Set<SinkWriter> dirtyWriters = new LinkedHashSet<>();
+        List<Commit> commits = new ArrayList<>();
+        while (true) {
+            Object item = queue.poll();
+            if (item == null) {
+                if (closed) {
+                    // all offers happened before the flag was set, so a last poll sees every remaining item
+                    if (queue.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+            int batchSize = 0;
+            do {
+                if (item instanceof Line) {
+                    Line line = (Line) item;
+                    line.writer.append(line.fields, line.header);
+                    dirtyWriters.add(line.writer);
+                } else {
+                    commits.add((Commit) item);
+                }
+                item = ++batchSize < MAXIMUM_BATCH_SIZE ? queue.poll() : null;
+            } while (item != null);
+
+            for (SinkWriter writer : dirtyWriters) {
+                try {
+                    writer.write();
+                } catch (IOException e) {
+                    writer.failed = true;
+                    FeatJAR.log().error("Could not write to " + writer.path);
+                    FeatJAR.log().error(e);
+                }
+            }
+            dirtyWriters.clear();
+            for (Commit commit : commits) {
+                if (commit.writer != null && commit.writer.failed) {
+                    // the rows may not be on disk, so the cell must not be recorded as completed
+                    FeatJAR.log().error("Dropping commit for " + commit.writer.path + " after a failed write");
+                    continue;
+                }
+                try {
+                    commit.onCommit.run();
+                } catch (Exception e) {
+                    FeatJAR.log().error(e);
+                }
+            }
+            commits.clear();
+        }
+    }
+
+    /**
+     * Writes all queued rows and closes all table files.
+     */
+    @Override
+    public void close() {
+        closeLock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (writers) {
+            for (SinkWriter writer : writers) {
+                try {
+                    writer.channel.close();
+                } catch (IOException e) {
+                    FeatJAR.log().error(e);
+                }
+            }
+            writers.clear();
+            for (ColumnarResultWriter writer : columnarWriters) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    FeatJAR.log().error(e);
+                }
+            }
+            columnarWriters.clear();
+        }
+        if (Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // JVM is already shutting down
+            }
+        }
+    }
+}
@@ -22,6 +22,7 @@ package de.featjar.evaluation.process;
 
 import de.featjar.evaluation.streams.IOutputReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -31,10 +32,43 @@ public abstract class Algorithm<R> implements IOutputReader {
 
     protected final ArrayList<String> commandElements = new ArrayList<>();
 
+    private IStreamingResultParser<R> resultParser;
+
     public abstract void postProcess() throws Exception;
 
     public abstract R parseResults() throws IOException;
 
+    /**
+     * Creates a parser that builds the result from the output of the process while it runs. Called once per run.
+     * Algorithms that only stream their results extend {@link StreamingAlgorithm} instead.
+     *
+     * @return the parser, or {@code null} if the result is parsed by {@link #parseResults()} only
+     */
+    protected IStreamingResultParser<R> createResultParser() {
+        return null;
+    }
+
+    /**
+     * Returns the result parser of the current run, or {@code null} if the algorithm does not stream its results.
+     */
+    public IStreamingResultParser<R> getResultParser() {
+        return resultParser;
+    }
+
+    @Override
+    public boolean accepts(ByteBuffer line) {
+        return resultParser == null || resultParser.accepts(line);
+    }
+
+    @Override
+    public boolean readOutput(ByteBuffer line) throws Exception {
+        if (resultParser == null) {
+            return false;
+        }
+        resultParser.parse(line);
+        return true;
+    }
+
     @Override
     public void readOutput(String line) throws Exception {}
 
@@ -43,6 +77,7 @@ public abstract class Algorithm<R> implements IOutputReader {
     public abstract String getParameterSettings();
 
     public void preProcess() throws Exception {
+        resultParser = createResultParser();
         commandElements.clear();
         addCommandElements();
     }
@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.process;
+
+import de.featjar.base.FeatJAR;
+import de.featjar.evaluation.util.CancellationToken;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs timed analyses on reusable threads.
+ * A single watchdog thread enforces the deadline of every analysis. When an analysis exceeds its deadline, its
+ * {@link CancellationToken} is cancelled, a thread dump is written, and a timeout result is returned right away, so
+ * that the caller can record it while the analysis winds down. The next analysis of the same caller only starts once
+ * the abandoned one has stopped, so that each caller never has more than one analysis running.
+ */
+public class AnalysisExecutor implements AutoCloseable {
+
+    /**
+     * An analysis that should stop when the given token is cancelled.
+     */
+    public interface Task<T> {
+        T call(CancellationToken token) throws Exception;
+    }
+
+    private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final ExecutorService executor;
+    private final ScheduledExecutorService watchdog;
+    private final Path dumpDirectory;
+    private final AtomicInteger dumpCount = new AtomicInteger();
+    // the last analysis of each calling thread that was given up and may still be running
+    private final ThreadLocal<CompletableFuture<Void>> abandonedAnalysis = new ThreadLocal<>();
+
+    /**
+     * @param dumpDirectory the directory thread dumps of timed out analyses are written to, or {@code null} to only
+     *     log them
+     */
+    public AnalysisExecutor(Path dumpDirectory) {
+        this.dumpDirectory = dumpDirectory;
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "analysis-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "analysis-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Runs the given analysis and measures its time and resources.
+     * The time is {@link Long#MAX_VALUE} if the analysis timed out, and {@link Result#INVALID_TIME} if it failed.
+     *
+     * @param name identifies the analysis in the log and in thread dumps
+     * @param timeout the maximum time in milliseconds, or a non-positive value for no limit
+     * @param task the analysis
+     */
+    public <T> Result<T> run(String name, long timeout, Task<T> task) {
+        if (!awaitAbandonedAnalysis()) {
+            return createTimeoutResult();
+        }
+        CancellationToken token = new CancellationToken();
+        CompletableFuture<Result<T>> completion = new CompletableFuture<>();
+        CompletableFuture<Void> stopped = new CompletableFuture<>();
+        AtomicReference<Thread> worker = new AtomicReference<>();
+        AtomicReference<ResourceMeter> meterReference = new AtomicReference<>();
+        executor.execute(() -> {
+            worker.set(Thread.currentThread());
+            Result<T> result = new Result<>();
+            ResourceMeter meter = ResourceMeter.start();
+            meterReference.set(meter);
+            if (completion.isDone()) {
+                // given up before the meter was visible to the watchdog
+                meter.abandon();
+            }
+            token.bindCurrentThread();
+            try {
+                long start = System.nanoTime();
+                T value = task.call(token);
+                result.setTime(System.nanoTime() - start);
+                result.setResult(value);
+                result.setTerminatedInTime(true);
+                result.setNoError(true);
+            } catch (Exception e) {
+                if (!token.isCancelled()) {
+                    FeatJAR.log().error(e);
+                }
+                result.setTime(Result.INVALID_TIME);
+            } finally {
+                token.unbindCurrentThread();
+                stopped.complete(null);
+                meter.stop(result);
+                worker.set(null);
+            }
+            completion.complete(result);
+        });
+
+        ScheduledFuture<?> deadline = null;
+        if (timeout > 0 && timeout < Long.MAX_VALUE) {
+            deadline = watchdog.schedule(
+                    () -> {
+                        if (!completion.isDone()) {
+                            Thread thread = worker.get();
+                            if (thread != null) {
+                                writeThreadDump(name, thread);
+                            }
+                            token.cancel();
+                            completion.complete(createTimeoutResult());
+                            abandon(meterReference);
+                        }
+                    },
+                    timeout,
+                    TimeUnit.MILLISECONDS);
+        }
+        try {
+            return completion.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            token.cancel();
+            completion.complete(createTimeoutResult());
+            abandon(meterReference);
+            return createTimeoutResult();
+        } catch (ExecutionException e) {
+            FeatJAR.log().error(e);
+            Result<T> result = new Result<>();
+            result.setTime(Result.INVALID_TIME);
+            return result;
+        } finally {
+            if (deadline != null) {
+                deadline.cancel(false);
+            }
+            if (!stopped.isDone()) {
+                abandonedAnalysis.set(stopped);
+            }
+        }
+    }
+
+    /**
+     * Waits until the last analysis of the current thread that was given up has stopped.
+     *
+     * @return {@code false} if the current thread was interrupted while waiting
+     */
+    private boolean awaitAbandonedAnalysis() {
+        CompletableFuture<Void> abandoned = abandonedAnalysis.get();
+        if (abandoned == null) {
+            return true;
+        }
+        if (!abandoned.isDone()) {
+            FeatJAR.log().info("Waiting for a timed out analysis to stop");
+            try {
+                abandoned.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (ExecutionException e) {
+                FeatJAR.log().error(e);
+            }
+        }
+        abandonedAnalysis.remove();
+        return true;
+    }
+
+    /**
+     * Ends the measurement of an analysis that may keep running, so that it does not keep later measurements from
+     * being exclusive.
+     */
+    private static void abandon(AtomicReference<ResourceMeter> meterReference) {
+        ResourceMeter meter = meterReference.get();
+        if (meter != null) {
+            meter.abandon();
+        }
+    }
+
+    private static <T> Result<T> createTimeoutResult() {
+        Result<T> result = new Result<>();
+        result.setTime(Long.MAX_VALUE);
+        result.setTerminatedInTime(false);
+        result.setNoError(true);
+        return result;
+    }
+
+    private void writeThreadDump(String name, Thread thread) {
+        StringBuilder dump = new StringBuilder();
+        dump.append("Timeout in ").append(name).append(System.lineSeparator()).append(System.lineSeparator());
+        ThreadInfo analysisThread = THREAD_BEAN.getThreadInfo(thread.getId(), Integer.MAX_VALUE);
+        if (analysisThread != null) {
+            appendThreadInfo(dump, analysisThread);
+        }
+        dump.append(System.lineSeparator()).append("All threads:").append(System.lineSeparator());
+        for (ThreadInfo threadInfo : THREAD_BEAN.dumpAllThreads(false, false)) {
+            appendThreadInfo(dump, threadInfo);
+        }
+        if (dumpDirectory == null) {
+            FeatJAR.log().warning(dump.toString());
+            return;
+        }
+        Path dumpFile = dumpDirectory.resolve(
+                "timeout-" + dumpCount.incrementAndGet() + "-" + name.replaceAll("[^\\w.-]", "_") + ".txt");
+        try {
+            Files.createDirectories(dumpDirectory);
+            Files.write(dumpFile, dump.toString().getBytes(StandardCharsets.UTF_8));
+            FeatJAR.log().info("Timeout in " + name + ", thread dump written to " + dumpFile);
+        } catch (final IOException e) {
+            FeatJAR.log().error(e);
+        }
+    }
+
+    private static void appendThreadInfo(StringBuilder dump, ThreadInfo threadInfo) {
+        dump.append('"')
+                .append(threadInfo.getThreadName())
+                .append("\" ")
+                .append(threadInfo.getThreadState())
+                .append(System.lineSeparator());
+        for (StackTraceElement element : threadInfo.getStackTrace()) {
+            dump.append("\tat ").append(element).append(System.lineSeparator());
+        }
+        dump.append(System.lineSeparator());
+    }
+
+    @Override
+    public void close() {
+        watchdog.shutdownNow();
+        executor.shutdownNow();
+    }
+}
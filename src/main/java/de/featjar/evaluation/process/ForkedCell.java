@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.process;
+
+import de.featjar.evaluation.output.ForkedResultWriter;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs one evaluation cell in a child JVM through the FeatJAR command line.
+ * The child is started with {@code --forkedChild}, so that it prints its result rows instead of writing them. The
+ * rows are collected while the child runs and are available even if the child is killed.
+ */
+public class ForkedCell extends Algorithm<List<ForkedCell.Row>> {
+
+    /**
+     * A result row printed by the child.
+     */
+    public static final class Row {
+        private final String table;
+        private final List<String> values;
+
+        private Row(String table, List<String> values) {
+            this.table = table;
+            this.values = values;
+        }
+
+        public String getTable() {
+            return table;
+        }
+
+        public List<String> getValues() {
+            return values;
+        }
+    }
+
+    private final String mainClass;
+    private final String command;
+    private final String maxHeap;
+    private final List<String> arguments;
+    private final String name;
+
+    private final Map<String, List<String>> headers = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final List<Row> rows = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * @param name identifies the cell in the log
+     * @param mainClass the main class of the child JVM
+     * @param command the command run by the child
+     * @param maxHeap the maximum heap size of the child, as given to {@code -Xmx}, or {@code null} for the default
+     * @param arguments the options of the command
+     */
+    public ForkedCell(String name, String mainClass, String command, String maxHeap, List<String> arguments) {
+        this.name = name;
+        this.mainClass = mainClass;
+        this.command = command;
+        this.maxHeap = maxHeap;
+        this.arguments = new ArrayList<>(arguments);
+    }
+
+    @Override
+    protected void addCommandElements() {
+        addCommandElement(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        if (maxHeap != null && !maxHeap.isEmpty()) {
+            addCommandElement("-Xmx" + maxHeap);
+        }
+        addCommandElement("-cp");
+        addCommandElement(System.getProperty("java.class.path"));
+        addCommandElement(mainClass);
+        addCommandElement(command);
+        arguments.forEach(this::addCommandElement);
+    }
+
+    @Override
+    public boolean accepts(ByteBuffer line) {
+        return line.remaining() > 0 && line.get(0) == '#';
+    }
+
+    @Override
+    public void readOutput(String line) {
+        List<String> fields = ForkedResultWriter.parse(line);
+        if (fields != null) {
+            String table = fields.get(1);
+            List<String> values = fields.subList(2, fields.size());
+            if (ForkedResultWriter.HEADER_MARKER.equals(fields.get(0))) {
+                headers.putIfAbsent(table, values);
+            } else {
+                rows.add(new Row(table, values));
+            }
+        }
+    }
+
+    /**
+     * Returns the header the child printed for the given table.
+     *
+     * @return the header, or {@code null} if the child did not create the table
+     */
+    public List<String> getHeader(String table) {
+        return headers.get(table);
+    }
+
+    public List<String> getTables() {
+        synchronized (headers) {
+            return new ArrayList<>(headers.keySet());
+        }
+    }
+
+    /**
+     * Returns the rows printed so far.
+     */
+    public List<Row> getRows() {
+        synchronized (rows) {
+            return new ArrayList<>(rows);
+        }
+    }
+
+    @Override
+    public List<Row> parseResults() {
+        return getRows();
+    }
+
+    @Override
+    public void postProcess() {}
+
+    @Override
+    public String getName() {
+        return "fork";
+    }
+
+    @Override
+    public String getParameterSettings() {
+        return name;
+    }
+}
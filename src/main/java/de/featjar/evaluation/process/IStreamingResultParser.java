@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.process;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Builds the result of an {@link Algorithm} from the standard output of its process while the process is running.
+ * Lines are passed undecoded on the thread reading the output. As the result is built incrementally, the records
+ * received before a process is killed are still available as a partial result.
+ *
+ * @param <R> the type of the result
+ * @see ResultRecords
+ */
+public interface IStreamingResultParser<R> {
+
+    /**
+     * Returns whether the given line is part of the result. By default, all {@link ResultRecords result records} are
+     * accepted.
+     *
+     * @param line the undecoded line without its line terminator
+     */
+    default boolean accepts(ByteBuffer line) {
+        return ResultRecords.isRecord(line);
+    }
+
+    /**
+     * Parses an accepted line.
+     *
+     * @param line the undecoded line without its line terminator
+     */
+    void parse(ByteBuffer line) throws Exception;
+
+    /**
+     * Returns the result built from all lines parsed so far.
+     */
+    R getResult();
+
+    /**
+     * Returns whether the process reported the end of its result.
+     */
+    boolean isComplete();
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.process;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * A job run by a {@link WorkerMain worker} JVM. A new instance is created for each job with the public no-argument
+ * constructor. The result is reported on the given stream, preferably as {@link ResultRecords result records}.
+ */
+public interface IWorkerJob {
+
+    /**
+     * Runs the job.
+     *
+     * @param arguments the arguments of the job
+     * @param out the stream the result is printed to
+     */
+    void run(List<String> arguments, PrintStream out) throws Exception;
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.process;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects all {@link ResultRecords#INTEGERS integer records} of a process, for instance the configurations of a
+ * sample.
+ */
+public class IntegerRecordsParser extends RecordResultParser<List<int[]>> {
+
+    private final List<int[]> records = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    protected void parseRecord(byte type, ByteBuffer payload) {
+        if (type == ResultRecords.INTEGERS) {
+            records.add(ResultRecords.parseIntegers(payload));
+        }
+    }
+
+    /**
+     * Returns the records parsed so far.
+     */
+    @Override
+    public List<int[]> getResult() {
+        synchronized (records) {
+            return new ArrayList<>(records);
+        }
+    }
+}
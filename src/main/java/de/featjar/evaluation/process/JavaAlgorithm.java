@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.process;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * An algorithm implemented as an {@link IWorkerJob} in Java. It can be run in a fresh JVM by a
+ * {@link ProcessRunner}, or on a warm JVM by a {@link WorkerPool}.
+ */
+public abstract class JavaAlgorithm<R> extends Algorithm<R> {
+
+    public abstract Class<? extends IWorkerJob> getJobClass();
+
+    public abstract List<String> getJobArguments() throws Exception;
+
+    /**
+     * Returns the arguments of the JVM, such as {@code -Xmx}, when the algorithm is run in a fresh JVM.
+     */
+    protected List<String> getJvmArguments() {
+        return List.of();
+    }
+
+    @Override
+    protected void addCommandElements() throws Exception {
+        addCommandElement(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        getJvmArguments().forEach(this::addCommandElement);
+        addCommandElement("-cp");
+        addCommandElement(System.getProperty("java.class.path"));
+        addCommandElement(WorkerMain.class.getName());
+        addCommandElement(getJobClass().getName());
+        getJobArguments().forEach(this::addCommandElement);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.process;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs external algorithms with up to a fixed number of processes at the same time.
+ * With more than one process, the heap is not settled before each process, as this would pause the other processes'
+ * stream pumps.
+ */
+public class ProcessPool implements AutoCloseable {
+
+    private final int size;
+    private final ProcessRunner processRunner = new ProcessRunner();
+    private final ExecutorService executor;
+
+    /**
+     * @param size the maximum number of concurrent processes
+     * @param timeout the timeout of each process in milliseconds
+     */
+    public ProcessPool(int size, long timeout) {
+        this.size = Math.max(1, size);
+        processRunner.setTimeout(timeout);
+        processRunner.setSettleHeap(this.size == 1);
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(this.size, r -> {
+            Thread thread = new Thread(r, "process-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Sets whether the standard output of the processes is logged at debug level.
+     */
+    public void setLogOutput(boolean logOutput) {
+        processRunner.setLogOutput(logOutput);
+    }
+
+    /**
+     * Runs the given algorithm as soon as one of the processes is available.
+     * The returned future is completed once the process has ended, its output has been consumed, and its results
+     * have been parsed.
+     */
+    public <R> CompletableFuture<Result<R>> submit(Algorithm<R> algorithm) {
+        return CompletableFuture.supplyAsync(() -> processRunner.run(algorithm), executor);
+    }
+
+    /**
+     * Stops accepting algorithms and kills the running processes.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -24,14 +24,32 @@ import de.featjar.base.FeatJAR;
 import de.featjar.evaluation.streams.ErrStreamCollector;
 import de.featjar.evaluation.streams.ErrStreamReader;
 import de.featjar.evaluation.streams.OutStreamReader;
+import de.featjar.evaluation.streams.StreamPumps;
 import de.featjar.evaluation.streams.StreamRedirector;
+import de.featjar.evaluation.util.GCSettler;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 public class ProcessRunner {
 
+    private static final long STREAM_DRAIN_TIMEOUT = 1000;
+
     private long timeout = Long.MAX_VALUE;
+    private long sampleInterval = 100;
+    private boolean settleHeap = true;
+    private boolean logOutput = false;
+    private Path outputDirectory;
+    private final AtomicInteger processCount = new AtomicInteger();
 
     public <R> Result<R> run(Algorithm<R> algorithm) {
         final Result<R> result = new Result<>();
@@ -39,7 +57,9 @@ public class ProcessRunner {
         boolean noError = false;
         long startTime = 0, endTime = 0;
         try {
-            System.gc();
+            if (settleHeap) {
+                GCSettler.settle();
+            }
             algorithm.preProcess();
 
             //            FeatJAR.log().debug(algorithm.getCommand());
@@ -53,30 +73,48 @@ public class ProcessRunner {
                 final StreamRedirector errRedirector =
                         new StreamRedirector(Arrays.asList(new ErrStreamReader(), errStreamCollector));
                 final StreamRedirector outRedirector =
-                        new StreamRedirector(Arrays.asList(new OutStreamReader(), algorithm));
-                final Thread outThread = new Thread(outRedirector);
-                final Thread errThread = new Thread(errRedirector);
+                        new StreamRedirector(Arrays.asList(new OutStreamReader(logOutput), algorithm));
+                if (outputDirectory != null) {
+                    Files.createDirectories(outputDirectory);
+                    String fileName = algorithm.getFullName().replaceAll("[^\\w.-]", "_") + "-"
+                            + processCount.incrementAndGet();
+                    outRedirector.setTeeFile(outputDirectory.resolve(fileName + ".out"));
+                    errRedirector.setTeeFile(outputDirectory.resolve(fileName + ".err"));
+                }
+                Future<?> outPump = null;
+                Future<?> errPump = null;
+                ProcessTreeMeter meter = null;
                 try {
                     startTime = System.nanoTime();
                     process = processBuilder.start();
+                    if (ProcessTreeMeter.isSupported()) {
+                        meter = new ProcessTreeMeter(process.toHandle());
+                    }
 
                     outRedirector.setInputStream(process.getInputStream());
                     errRedirector.setInputStream(process.getErrorStream());
-                    outThread.start();
-                    errThread.start();
+                    outPump = StreamPumps.start(outRedirector);
+                    errPump = StreamPumps.start(errRedirector);
 
-                    terminatedInTime = process.waitFor(timeout, TimeUnit.MILLISECONDS);
+                    terminatedInTime = waitFor(process, meter);
                     endTime = System.nanoTime();
-                    noError = errStreamCollector.getErrList().isEmpty();
-                    result.setTerminatedInTime(terminatedInTime);
-                    result.setNoError(noError);
-                    result.setTime((endTime - startTime) / 1_000_000L);
                 } finally {
                     if (process != null) {
-                        process.destroyForcibly();
+                        if (meter != null) {
+                            meter.sample();
+                            meter.stop(result);
+                        }
+                        destroyTree(process);
+                        // all output must be consumed before the results are parsed
+                        drain(outPump, process.getInputStream());
+                        drain(errPump, process.getErrorStream());
                     }
-                    FeatJAR.log().info("In time: " + terminatedInTime + ", no error: " + noError);
                 }
+                noError = errStreamCollector.getErrList().isEmpty();
+                result.setTerminatedInTime(terminatedInTime);
+                result.setNoError(noError);
+                result.setTime(endTime - startTime);
+                FeatJAR.log().info("In time: " + terminatedInTime + ", no error: " + noError);
             } else {
                 result.setTerminatedInTime(false);
                 result.setNoError(false);
@@ -89,9 +127,34 @@ public class ProcessRunner {
             result.setNoError(false);
             result.setTime(Result.INVALID_TIME);
         }
+        collectResults(algorithm, result, terminatedInTime && noError);
+        return result;
+    }
+
+    /**
+     * Kills the given process and all of its descendants. The descendants are collected first, as they are no
+     * longer descendants once their parent is gone.
+     */
+    static void destroyTree(Process process) {
+        List<ProcessHandle> descendants = process.descendants().collect(Collectors.toList());
+        process.destroyForcibly();
+        descendants.forEach(ProcessHandle::destroyForcibly);
+    }
+
+    /**
+     * Stores the result of the given algorithm in the given result and post-processes the algorithm. If the run
+     * failed, a partial result is kept if the algorithm streams its results.
+     */
+    static <R> void collectResults(Algorithm<R> algorithm, Result<R> result, boolean succeeded) {
+        final IStreamingResultParser<R> resultParser = algorithm.getResultParser();
         try {
-            if (terminatedInTime && noError) {
+            if (succeeded) {
                 result.setResult(algorithm.parseResults());
+                result.setResultComplete(resultParser == null || resultParser.isComplete());
+            } else if (resultParser != null) {
+                // keep what the process reported before it was killed or failed
+                result.setResult(resultParser.getResult());
+                result.setResultComplete(resultParser.isComplete());
             }
         } catch (final Exception e) {
             FeatJAR.log().error(e);
@@ -102,7 +165,50 @@ public class ProcessRunner {
         } catch (final Exception e) {
             FeatJAR.log().error(e);
         }
-        return result;
+    }
+
+    /**
+     * Waits until the given process terminated or the timeout elapsed, sampling its resource usage meanwhile.
+     */
+    private boolean waitFor(Process process, ProcessTreeMeter meter) throws InterruptedException {
+        if (meter == null) {
+            return process.waitFor(timeout, TimeUnit.MILLISECONDS);
+        }
+        long remaining = TimeUnit.MILLISECONDS.toNanos(timeout);
+        long interval = TimeUnit.MILLISECONDS.toNanos(sampleInterval);
+        long last = System.nanoTime();
+        while (true) {
+            meter.sample();
+            if (process.waitFor(Math.min(interval, remaining), TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+            long now = System.nanoTime();
+            remaining -= now - last;
+            last = now;
+            if (remaining <= 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Waits until the given stream pump reached the end of its stream. If the stream is held open, for instance by a
+     * child of the killed process, it is closed after {@link #STREAM_DRAIN_TIMEOUT} milliseconds.
+     */
+    private static void drain(Future<?> pump, InputStream stream) throws InterruptedException {
+        if (pump == null) {
+            return;
+        }
+        try {
+            try {
+                pump.get(STREAM_DRAIN_TIMEOUT, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                stream.close();
+                pump.get();
+            }
+        } catch (ExecutionException | IOException e) {
+            FeatJAR.log().error(e);
+        }
     }
 
     public long getTimeout() {
@@ -112,4 +218,52 @@ public class ProcessRunner {
     public void setTimeout(long timeout) {
         this.timeout = timeout;
     }
+
+    public long getSampleInterval() {
+        return sampleInterval;
+    }
+
+    /**
+     * Sets the interval in milliseconds in which the resource usage of processes is sampled on Linux. Activity during
+     * the last interval before a process terminates is not measured.
+     */
+    public void setSampleInterval(long sampleInterval) {
+        this.sampleInterval = sampleInterval;
+    }
+
+    public boolean isLogOutput() {
+        return logOutput;
+    }
+
+    /**
+     * Sets whether the standard output of processes is logged at debug level. If disabled, the output is only
+     * decoded for lines accepted by the algorithm.
+     */
+    public void setLogOutput(boolean logOutput) {
+        this.logOutput = logOutput;
+    }
+
+    public Path getOutputDirectory() {
+        return outputDirectory;
+    }
+
+    /**
+     * Sets a directory the raw standard output and error of each process are copied to, or {@code null} to not keep
+     * them.
+     */
+    public void setOutputDirectory(Path outputDirectory) {
+        this.outputDirectory = outputDirectory;
+    }
+
+    public boolean isSettleHeap() {
+        return settleHeap;
+    }
+
+    /**
+     * Sets whether the heap is settled before each process is started. Should be disabled when several processes run
+     * concurrently.
+     */
+    public void setSettleHeap(boolean settleHeap) {
+        this.settleHeap = settleHeap;
+    }
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.process;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Measures the operating system resources used by a process and all of its descendants by sampling {@code /proc}.
+ * Only available on Linux.
+ * The counters of a process can only be read while it is running, so the last values seen for each process are
+ * used. Hence, up to one sampling interval of activity at the end of a process and descendants that live shorter
+ * than one interval are missed. The peak RSS is the largest sum of the resident set sizes of the whole tree seen in
+ * any sample, or the largest high-water mark of a single process if that is larger.
+ */
+public class ProcessTreeMeter {
+
+    private static final Path PROC = Path.of("/proc");
+
+    // USER_HZ is part of the kernel ABI and 100 on all common platforms
+    private static final long CLOCK_TICK = TimeUnit.SECONDS.toNanos(1) / 100;
+
+    private static class Usage {
+        private long userTicks, systemTicks;
+        private long voluntaryContextSwitches = -1, involuntaryContextSwitches = -1;
+        private long readBytes = -1, writeBytes = -1;
+    }
+
+    private final ProcessHandle root;
+    // processes are identified by their pid and start time, as pids may be reused
+    private final Map<String, Usage> usages = new HashMap<>();
+    private long peakRss = 0;
+
+    public ProcessTreeMeter(ProcessHandle root) {
+        this.root = root;
+    }
+
+    public static boolean isSupported() {
+        return Files.isReadable(PROC.resolve("self").resolve("stat"));
+    }
+
+    /**
+     * Reads the current counters of all processes in the tree.
+     */
+    public synchronized void sample() {
+        long rss = sample(root.pid());
+        for (ProcessHandle descendant : (Iterable<ProcessHandle>) root.descendants()::iterator) {
+            rss += sample(descendant.pid());
+        }
+        peakRss = Math.max(peakRss, rss);
+    }
+
+    private long sample(long pid) {
+        Path directory = PROC.resolve(String.valueOf(pid));
+        try {
+            String stat = Files.readString(directory.resolve("stat"), StandardCharsets.US_ASCII);
+            // the command name may contain spaces and parentheses
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            Usage usage = usages.computeIfAbsent(pid + "@" + fields[19], k -> new Usage());
+            usage.userTicks = Long.parseLong(fields[11]);
+            usage.systemTicks = Long.parseLong(fields[12]);
+            long rss = 0;
+            for (String line : Files.readAllLines(directory.resolve("status"), StandardCharsets.US_ASCII)) {
+                if (line.startsWith("VmRSS:")) {
+                    rss = parseValue(line) * 1024;
+                } else if (line.startsWith("VmHWM:")) {
+                    peakRss = Math.max(peakRss, parseValue(line) * 1024);
+                } else if (line.startsWith("voluntary_ctxt_switches:")) {
+                    usage.voluntaryContextSwitches = parseValue(line);
+                } else if (line.startsWith("nonvoluntary_ctxt_switches:")) {
+                    usage.involuntaryContextSwitches = parseValue(line);
+                }
+            }
+            Path io = directory.resolve("io");
+            if (Files.isReadable(io)) {
+                for (String line : Files.readAllLines(io, StandardCharsets.US_ASCII)) {
+                    if (line.startsWith("read_bytes:")) {
+                        usage.readBytes = parseValue(line);
+                    } else if (line.startsWith("write_bytes:")) {
+                        usage.writeBytes = parseValue(line);
+                    }
+                }
+            }
+            return rss;
+        } catch (IOException | RuntimeException e) {
+            // the process terminated in the meantime
+            return 0;
+        }
+    }
+
+    private static long parseValue(String line) {
+        String value = line.substring(line.indexOf(':') + 1).trim();
+        int end = value.indexOf(' ');
+        return Long.parseLong(end < 0 ? value : value.substring(0, end));
+    }
+
+    /**
+     * Stores the resources used by the tree in the given result.
+     */
+    public synchronized void stop(Result<?> result) {
+        if (usages.isEmpty()) {
+            return;
+        }
+        long userTicks = 0, systemTicks = 0;
+        for (Usage usage : usages.values()) {
+            userTicks += usage.userTicks;
+            systemTicks += usage.systemTicks;
+        }
+        result.setUserTime(userTicks * CLOCK_TICK);
+        result.setSystemTime(systemTicks * CLOCK_TICK);
+        result.setCpuTime((userTicks + systemTicks) * CLOCK_TICK);
+        result.setPeakRss(peakRss);
+        result.setVoluntaryContextSwitches(sum(usage -> usage.voluntaryContextSwitches));
+        result.setInvoluntaryContextSwitches(sum(usage -> usage.involuntaryContextSwitches));
+        result.setReadBytes(sum(usage -> usage.readBytes));
+        result.setWriteBytes(sum(usage -> usage.writeBytes));
+    }
+
+    private long sum(ToLongFunction<Usage> counter) {
+        long sum = 0;
+        for (Usage usage : usages.values()) {
+            long value = counter.applyAsLong(usage);
+            if (value < 0) {
+                return Result.INVALID_VALUE;
+            }
+            sum += value;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.process;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Base class for parsers of {@link ResultRecords result records}. Records received after the end of the result are
+ * ignored.
+ *
+ * @param <R> the type of the result
+ */
+public abstract class RecordResultParser<R> implements IStreamingResultParser<R> {
+
+    private volatile boolean complete = false;
+
+    @Override
+    public void parse(ByteBuffer line) throws Exception {
+        if (complete) {
+            return;
+        }
+        byte type = ResultRecords.getType(line);
+        if (type == ResultRecords.END) {
+            complete = true;
+        } else {
+            parseRecord(type, ResultRecords.getPayload(line));
+        }
+    }
+
+    /**
+     * Parses a single record.
+     *
+     * @param type the type of the record
+     * @param payload the undecoded payload of the record
+     */
+    protected abstract void parseRecord(byte type, ByteBuffer payload) throws Exception;
+
+    @Override
+    public boolean isComplete() {
+        return complete;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.process;
+
+import de.featjar.evaluation.util.GCSettler;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the resources used by the current thread between {@link #start()} and {@link #stop(Result)}.
+ * CPU time and allocated bytes are taken for the measuring thread only. GC count, GC time, and peak heap usage are
+ * only available for the whole JVM. They are only stored if no other measurement overlapped with this one, as they
+ * could not be attributed to either measurement otherwise, and resetting the peak heap usage would falsify the
+ * other measurement. A measurement that is never stopped, for instance of an analysis that ignores its timeout, must
+ * be {@link #abandon() abandoned}, so that later measurements can be exclusive again.
+ */
+public class ResourceMeter {
+
+    private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+    private static final AtomicInteger ACTIVE_COUNT = new AtomicInteger();
+    private static final AtomicLong START_COUNT = new AtomicLong();
+
+    private final long threadId;
+    private final boolean exclusive;
+    private final long startNumber;
+    private final long startCpuTime;
+    private final long startAllocatedBytes;
+    private final long startGcCount;
+    private final long startGcTime;
+    private final AtomicBoolean active = new AtomicBoolean(true);
+
+    private ResourceMeter() {
+        threadId = Thread.currentThread().getId();
+        exclusive = ACTIVE_COUNT.getAndIncrement() == 0;
+        startNumber = START_COUNT.incrementAndGet();
+        if (exclusive) {
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    pool.resetPeakUsage();
+                }
+            }
+        }
+        startGcCount = GCSettler.getCollectionCount();
+        startGcTime = getGcTime();
+        startAllocatedBytes = getAllocatedBytes(threadId);
+        startCpuTime = getCpuTime();
+    }
+
+    public static ResourceMeter start() {
+        return new ResourceMeter();
+    }
+
+    /**
+     * Stores the resources used since {@link #start()} in the given result.
+     * Must be called from the same thread as {@link #start()}.
+     */
+    public void stop(Result<?> result) {
+        long cpuTime = getCpuTime();
+        long allocatedBytes = getAllocatedBytes(threadId);
+        if (startCpuTime >= 0 && cpuTime >= 0) {
+            result.setCpuTime(cpuTime - startCpuTime);
+        }
+        if (startAllocatedBytes >= 0 && allocatedBytes >= 0) {
+            result.setAllocatedBytes(allocatedBytes - startAllocatedBytes);
+        }
+        long gcCount = GCSettler.getCollectionCount() - startGcCount;
+        long gcTime = TimeUnit.MILLISECONDS.toNanos(getGcTime() - startGcTime);
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+        // checked after reading the values, so that a measurement started in the meantime is noticed
+        boolean overlapped = !exclusive || START_COUNT.get() != startNumber;
+        if (!active.compareAndSet(true, false)) {
+            // abandoned, so other measurements may have run meanwhile
+            return;
+        }
+        ACTIVE_COUNT.decrementAndGet();
+        if (!overlapped) {
+            result.setGcCount(gcCount);
+            result.setGcTime(gcTime);
+            result.setPeakHeap(peakHeap);
+        }
+    }
+
+    /**
+     * Ends this measurement without storing any values. Can be called from any thread. Has no effect if the
+     * measurement was already stopped or abandoned.
+     */
+    public void abandon() {
+        if (active.compareAndSet(true, false)) {
+            ACTIVE_COUNT.decrementAndGet();
+        }
+    }
+
+    private static long getCpuTime() {
+        return THREAD_BEAN.isCurrentThreadCpuTimeSupported() ? THREAD_BEAN.getCurrentThreadCpuTime() : -1;
+    }
+
+    private static long getAllocatedBytes(long threadId) {
+        if (THREAD_BEAN instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) THREAD_BEAN;
+            if (threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled()) {
+                return threadBean.getThreadAllocatedBytes(threadId);
+            }
+        }
+        return -1;
+    }
+
+    private static long getGcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gcBean.getCollectionTime());
+        }
+        return time;
+    }
+}
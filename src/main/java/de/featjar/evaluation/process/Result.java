@@ -21,14 +21,32 @@
 package de.featjar.evaluation.process;
 
 // TODO Rename, ReturnValue?
+/**
+ * Result of a single measurement. All times are in nanoseconds, all sizes in bytes.
+ * User and system time, peak RSS, context switches, and I/O bytes are only measured for external processes.
+ */
 public class Result<R> {
 
     public static long INVALID_TIME = -1;
+    public static long INVALID_VALUE = -1;
 
     private boolean terminatedInTime = false;
     private boolean noError = false;
     private long time = INVALID_TIME;
+    private long cpuTime = INVALID_TIME;
+    private long allocatedBytes = INVALID_VALUE;
+    private long gcCount = INVALID_VALUE;
+    private long gcTime = INVALID_TIME;
+    private long peakHeap = INVALID_VALUE;
+    private long userTime = INVALID_TIME;
+    private long systemTime = INVALID_TIME;
+    private long peakRss = INVALID_VALUE;
+    private long voluntaryContextSwitches = INVALID_VALUE;
+    private long involuntaryContextSwitches = INVALID_VALUE;
+    private long readBytes = INVALID_VALUE;
+    private long writeBytes = INVALID_VALUE;
     private R result = null;
+    private boolean resultComplete = false;
 
     public boolean isTerminatedInTime() {
         return terminatedInTime;
@@ -54,6 +72,102 @@ public class Result<R> {
         this.time = time;
     }
 
+    public long getCpuTime() {
+        return cpuTime;
+    }
+
+    public void setCpuTime(long cpuTime) {
+        this.cpuTime = cpuTime;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public void setAllocatedBytes(long allocatedBytes) {
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    public long getGcCount() {
+        return gcCount;
+    }
+
+    public void setGcCount(long gcCount) {
+        this.gcCount = gcCount;
+    }
+
+    public long getGcTime() {
+        return gcTime;
+    }
+
+    public void setGcTime(long gcTime) {
+        this.gcTime = gcTime;
+    }
+
+    public long getPeakHeap() {
+        return peakHeap;
+    }
+
+    public void setPeakHeap(long peakHeap) {
+        this.peakHeap = peakHeap;
+    }
+
+    public long getUserTime() {
+        return userTime;
+    }
+
+    public void setUserTime(long userTime) {
+        this.userTime = userTime;
+    }
+
+    public long getSystemTime() {
+        return systemTime;
+    }
+
+    public void setSystemTime(long systemTime) {
+        this.systemTime = systemTime;
+    }
+
+    public long getPeakRss() {
+        return peakRss;
+    }
+
+    public void setPeakRss(long peakRss) {
+        this.peakRss = peakRss;
+    }
+
+    public long getVoluntaryContextSwitches() {
+        return voluntaryContextSwitches;
+    }
+
+    public void setVoluntaryContextSwitches(long voluntaryContextSwitches) {
+        this.voluntaryContextSwitches = voluntaryContextSwitches;
+    }
+
+    public long getInvoluntaryContextSwitches() {
+        return involuntaryContextSwitches;
+    }
+
+    public void setInvoluntaryContextSwitches(long involuntaryContextSwitches) {
+        this.involuntaryContextSwitches = involuntaryContextSwitches;
+    }
+
+    public long getReadBytes() {
+        return readBytes;
+    }
+
+    public void setReadBytes(long readBytes) {
+        this.readBytes = readBytes;
+    }
+
+    public long getWriteBytes() {
+        return writeBytes;
+    }
+
+    public void setWriteBytes(long writeBytes) {
+        this.writeBytes = writeBytes;
+    }
+
     public R getResult() {
         return result;
     }
@@ -61,4 +175,15 @@ public class Result<R> {
     public void setResult(R result) {
         this.result = result;
     }
+
+    /**
+     * Returns whether the result is complete. The result of a process that was killed or failed may be partial.
+     */
+    public boolean isResultComplete() {
+        return resultComplete;
+    }
+
+    public void setResultComplete(boolean resultComplete) {
+        this.resultComplete = resultComplete;
+    }
 }
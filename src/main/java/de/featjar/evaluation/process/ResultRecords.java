@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.process;
+
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A compact line protocol for results that are printed to the standard output of a process.
+ * Each record is one line consisting of {@link #MARKER}, a one-character record type, and an optional payload that is
+ * separated by a single space. Payloads of numbers are parsed directly from the bytes of the line, so that large
+ * results such as sample sets are never decoded into strings. The type {@link #END} marks the end of a result.
+ * For instance, a sample of two configurations is printed as:
+ *
+ * <pre>
+ * &#64;a 1 -2 3
+ * &#64;a -1 2 3
+ * &#64;e
+ * </pre>
+ */
+public final class ResultRecords {
+
+    public static final byte MARKER = '@';
+
+    public static final byte END = 'e';
+
+    /**
+     * Type of a record holding a list of integers, such as a configuration or a clause.
+     */
+    public static final byte INTEGERS = 'a';
+
+    /**
+     * Type of a record holding a single value as text.
+     */
+    public static final byte VALUE = 'v';
+
+    private ResultRecords() {}
+
+    public static boolean isRecord(ByteBuffer line) {
+        return line.remaining() >= 2
+                && line.get(line.position()) == MARKER
+                && (line.remaining() == 2 || line.get(line.position() + 2) == ' ');
+    }
+
+    /**
+     * Returns the type of the given record.
+     */
+    public static byte getType(ByteBuffer record) {
+        return record.get(record.position() + 1);
+    }
+
+    /**
+     * Returns the payload of the given record.
+     */
+    public static ByteBuffer getPayload(ByteBuffer record) {
+        ByteBuffer payload = record.duplicate();
+        payload.position(Math.min(record.position() + 3, record.limit()));
+        return payload.slice();
+    }
+
+    /**
+     * Parses a payload of integers separated by spaces.
+     *
+     * @throws NumberFormatException if the payload contains anything else
+     */
+    public static int[] parseIntegers(ByteBuffer payload) {
+        int count = 0;
+        boolean inNumber = false;
+        for (int i = payload.position(); i < payload.limit(); i++) {
+            boolean separator = payload.get(i) == ' ';
+            if (!separator && !inNumber) {
+                count++;
+            }
+            inNumber = !separator;
+        }
+        int[] integers = new int[count];
+        int index = 0;
+        int i = payload.position();
+        while (index < count) {
+            while (payload.get(i) == ' ') {
+                i++;
+            }
+            boolean negative = payload.get(i) == '-';
+            if (negative) {
+                i++;
+            }
+            long value = 0;
+            int digits = 0;
+            for (; i < payload.limit() && payload.get(i) != ' '; i++, digits++) {
+                int digit = payload.get(i) - '0';
+                if (digit < 0 || digit > 9 || digits > 10) {
+                    throw new NumberFormatException("Invalid integer in result record");
+                }
+                value = value * 10 + digit;
+            }
+            value = negative ? -value : value;
+            if (digits == 0 || value != (int) value) {
+                throw new NumberFormatException("Invalid integer in result record");
+            }
+            integers[index++] = (int) value;
+        }
+        return integers;
+    }
+
+    /**
+     * Decodes a payload holding text.
+     */
+    public static String parseValue(ByteBuffer payload) {
+        return StandardCharsets.UTF_8.decode(payload.duplicate()).toString();
+    }
+
+    /**
+     * Prints a record holding a list of integers. Intended for tools that report their result through this protocol.
+     */
+    public static void writeIntegers(PrintStream out, int... integers) {
+        StringBuilder record = new StringBuilder(integers.length * 6 + 3);
+        record.append((char) MARKER).append((char) INTEGERS);
+        for (int integer : integers) {
+            record.append(' ').append(integer);
+        }
+        out.println(record);
+    }
+
+    /**
+     * Prints a record holding a single value. The value must not contain line breaks.
+     */
+    public static void writeValue(PrintStream out, String value) {
+        out.println((char) MARKER + "" + (char) VALUE + " " + value);
+    }
+
+    /**
+     * Prints the record marking the end of a result.
+     */
+    public static void writeEnd(PrintStream out) {
+        out.println((char) MARKER + "" + (char) END);
+        out.flush();
+    }
+}
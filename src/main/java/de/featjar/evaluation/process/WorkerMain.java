@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.process;
+
+import de.featjar.evaluation.util.GCSettler;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Main class of a child JVM that runs {@link IWorkerJob jobs}.
+ * Called as {@code WorkerMain <job class> <arguments...>}, a single job is run. Called as
+ * {@code WorkerMain --serve [--settle]}, jobs are read from the standard input until it is closed, one per line with
+ * tab-separated fields: the job id, the job class, and its arguments. After each job, a line starting with
+ * {@link #DONE_MARKER} reports its status, time, and resource usage. The marker always starts a new line, even if the
+ * output of the job does not end with a line break. With {@code --settle}, the heap is settled before each job.
+ * Only the jobs write to the standard output. Anything else printed to {@link System#out} is redirected to the
+ * standard error, so that it does not interfere with the protocol.
+ */
+public final class WorkerMain {
+
+    public static final String SERVE_OPTION = "--serve";
+    public static final String SETTLE_OPTION = "--settle";
+
+    public static final String DONE_MARKER = "#worker-done";
+    public static final String STATUS_OK = "ok";
+    public static final String STATUS_ERROR = "error";
+
+    /**
+     * Remembers the last byte written, so that the done marker can be put on a line of its own.
+     */
+    private static final class LastByteOutputStream extends FilterOutputStream {
+        private int lastByte = '\n';
+
+        private LastByteOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            lastByte = b & 0xFF;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (len > 0) {
+                lastByte = b[off + len - 1] & 0xFF;
+            }
+        }
+
+        private boolean isAtLineStart() {
+            return lastByte == '\n';
+        }
+    }
+
+    private WorkerMain() {}
+
+    public static void main(String[] args) throws Exception {
+        LastByteOutputStream lastByteOut = new LastByteOutputStream(
+                new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16));
+        PrintStream out = new PrintStream(lastByteOut, false, StandardCharsets.UTF_8.name());
+        System.setOut(System.err);
+        if (args.length > 0 && SERVE_OPTION.equals(args[0])) {
+            serve(out, lastByteOut, Arrays.asList(args).contains(SETTLE_OPTION));
+        } else if (args.length > 0) {
+            IWorkerJob job = createJob(args[0]);
+            job.run(Arrays.asList(args).subList(1, args.length), out);
+            out.flush();
+        } else {
+            System.err.println("Usage: WorkerMain <job class> <arguments...> | " + SERVE_OPTION + " [" + SETTLE_OPTION
+                    + "]");
+            System.exit(2);
+        }
+    }
+
+    private static void serve(PrintStream out, LastByteOutputStream lastByteOut, boolean settleHeap)
+            throws Exception {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        for (String line = in.readLine(); line != null; line = in.readLine()) {
+            List<String> fields = decode(line);
+            if (fields.size() < 2) {
+                System.err.println("Invalid job: " + line);
+                continue;
+            }
+            if (settleHeap) {
+                GCSettler.settle();
+            }
+            Result<?> result = new Result<>();
+            String status = STATUS_OK;
+            ResourceMeter meter = ResourceMeter.start();
+            long startTime = System.nanoTime();
+            try {
+                createJob(fields.get(1)).run(fields.subList(2, fields.size()), out);
+            } catch (Throwable e) {
+                e.printStackTrace();
+                status = STATUS_ERROR;
+            }
+            long time = System.nanoTime() - startTime;
+            meter.stop(result);
+            out.flush();
+            if (!lastByteOut.isAtLineStart()) {
+                out.println();
+            }
+            out.println(encode(List.of(
+                    DONE_MARKER,
+                    fields.get(0),
+                    status,
+                    String.valueOf(time),
+                    String.valueOf(result.getCpuTime()),
+                    String.valueOf(result.getAllocatedBytes()),
+                    String.valueOf(result.getGcCount()),
+                    String.valueOf(result.getGcTime()),
+                    String.valueOf(result.getPeakHeap()))));
+            out.flush();
+        }
+    }
+
+    private static IWorkerJob createJob(String className) throws ReflectiveOperationException {
+        return Class.forName(className)
+                .asSubclass(IWorkerJob.class)
+                .getConstructor()
+                .newInstance();
+    }
+
+    /**
+     * Joins the given fields to a line, escaping tabs, line breaks, and backslashes.
+     */
+    static String encode(List<String> fields) {
+        StringBuilder line = new StringBuilder();
+        for (String field : fields) {
+            if (line.length() > 0) {
+                line.append('\t');
+            }
+            for (int i = 0; i < field.length(); i++) {
+                char c = field.charAt(i);
+                switch (c) {
+                    case '\\':
+                        line.append("\\\\");
+                        break;
+                    case '\t':
+                        line.append("\\t");
+                        break;
+                    case '\n':
+                        line.append("\\n");
+                        break;
+                    case '\r':
+                        line.append("\\r");
+                        break;
+                    default:
+                        line.append(c);
+                }
+            }
+        }
+        return line.toString();
+    }
+
+    /**
+     * Splits a line created by {@link #encode(List)} into its fields.
+     */
+    static List<String> decode(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\t') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\\' && i + 1 < line.length()) {
+                char escaped = line.charAt(++i);
+                field.append(escaped == 't' ? '\t' : escaped == 'n' ? '\n' : escaped == 'r' ? '\r' : escaped);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.process;
+
+import de.featjar.base.FeatJAR;
+import de.featjar.evaluation.streams.ErrStreamReader;
+import de.featjar.evaluation.streams.IOutputReader;
+import de.featjar.evaluation.streams.StreamPumps;
+import de.featjar.evaluation.streams.StreamRedirector;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs {@link JavaAlgorithm Java algorithms} on a pool of long-lived child JVMs, so that JVM startup and class
+ * loading are not paid for every run. Jobs are sent to the {@link WorkerMain workers} over their standard input, and
+ * their output is read as for a {@link ProcessRunner}. The time and resources of a job are measured inside the
+ * worker.
+ * A worker is replaced after a fixed number of jobs, so that state accumulated in a JVM does not distort later
+ * measurements, and whenever a job times out or the worker dies. Can be used by several threads at once.
+ */
+public class WorkerPool implements AutoCloseable {
+
+    private static final long SHUTDOWN_TIMEOUT = 1000;
+    // a job whose done marker is lost must not block its caller forever
+    private static final long DEFAULT_TIMEOUT = TimeUnit.HOURS.toMillis(1);
+
+    private final int size;
+    private final int maximumJobsPerWorker;
+    private final List<String> jvmArguments;
+    private final Semaphore slots;
+    private final LinkedBlockingDeque<Worker> idleWorkers = new LinkedBlockingDeque<>();
+    private final Set<Worker> workers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger workerCount = new AtomicInteger();
+    private final AtomicInteger jobCount = new AtomicInteger();
+
+    private long timeout = DEFAULT_TIMEOUT;
+    private boolean settleHeap = true;
+    private volatile boolean closed = false;
+
+    /**
+     * @param size the maximum number of workers
+     * @param maximumJobsPerWorker the number of jobs after which a worker is replaced
+     * @param jvmArguments the arguments of the worker JVMs, such as {@code -Xmx}
+     */
+    public WorkerPool(int size, int maximumJobsPerWorker, List<String> jvmArguments) {
+        this.size = Math.max(1, size);
+        this.maximumJobsPerWorker = Math.max(1, maximumJobsPerWorker);
+        this.jvmArguments = new ArrayList<>(jvmArguments);
+        slots = new Semaphore(this.size, true);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Sets the timeout of each job in milliseconds. The default is one hour.
+     */
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    public boolean isSettleHeap() {
+        return settleHeap;
+    }
+
+    /**
+     * Sets whether workers settle their heap before each job. Applies to workers started afterwards.
+     */
+    public void setSettleHeap(boolean settleHeap) {
+        this.settleHeap = settleHeap;
+    }
+
+    /**
+     * Runs the given algorithm on an idle worker, starting a new one if necessary. Blocks while all workers are busy.
+     */
+    public <R> Result<R> run(JavaAlgorithm<R> algorithm) {
+        final Result<R> result = new Result<>();
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.setTime(Result.INVALID_TIME);
+            return result;
+        }
+        Worker worker = null;
+        boolean succeeded = false;
+        try {
+            if (closed) {
+                throw new IllegalStateException("Worker pool is closed");
+            }
+            worker = idleWorkers.pollLast();
+            if (worker != null && !worker.process.isAlive()) {
+                worker.close();
+                worker = null;
+            }
+            if (worker == null) {
+                worker = new Worker();
+            }
+            algorithm.preProcess();
+            succeeded = worker.run(algorithm, result);
+            FeatJAR.log().info("In time: " + result.isTerminatedInTime() + ", no error: " + result.isNoError());
+        } catch (final Exception e) {
+            FeatJAR.log().error(e);
+            result.setTerminatedInTime(false);
+            result.setNoError(false);
+            result.setTime(Result.INVALID_TIME);
+        } finally {
+            if (worker != null) {
+                if (!closed && worker.isReusable()) {
+                    idleWorkers.addLast(worker);
+                } else {
+                    worker.close();
+                }
+            }
+            slots.release();
+        }
+        ProcessRunner.collectResults(algorithm, result, succeeded);
+        return result;
+    }
+
+    /**
+     * Stops all workers. Running jobs are aborted.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Worker worker : new ArrayList<>(workers)) {
+            worker.close();
+        }
+        idleWorkers.clear();
+    }
+
+    /**
+     * A job sent to a worker.
+     */
+    private static final class Job {
+        private final String id;
+        private final Algorithm<?> algorithm;
+        private final CompletableFuture<List<String>> done = new CompletableFuture<>();
+
+        private Job(String id, Algorithm<?> algorithm) {
+            this.id = id;
+            this.algorithm = algorithm;
+        }
+    }
+
+    /**
+     * Passes the output of a worker to the algorithm of its current job, and completes the job on its done marker.
+     */
+    private static final class WorkerOutput implements IOutputReader {
+        private static final byte[] DONE_MARKER = WorkerMain.DONE_MARKER.getBytes(StandardCharsets.US_ASCII);
+
+        private volatile Job job;
+
+        @Override
+        public boolean accepts(ByteBuffer line) {
+            Job currentJob = job;
+            return isDoneMarker(line) || (currentJob != null && currentJob.algorithm.accepts(line));
+        }
+
+        @Override
+        public boolean readOutput(ByteBuffer line) throws Exception {
+            Job currentJob = job;
+            return !isDoneMarker(line) && currentJob != null && currentJob.algorithm.readOutput(line);
+        }
+
+        @Override
+        public void readOutput(String line) throws Exception {
+            Job currentJob = job;
+            if (line.startsWith(WorkerMain.DONE_MARKER)) {
+                List<String> fields = WorkerMain.decode(line);
+                if (currentJob != null && fields.size() > 1 && currentJob.id.equals(fields.get(1))) {
+                    currentJob.done.complete(fields);
+                }
+            } else if (currentJob != null) {
+                currentJob.algorithm.readOutput(line);
+            }
+        }
+
+        private static boolean isDoneMarker(ByteBuffer line) {
+            if (line.remaining() < DONE_MARKER.length) {
+                return false;
+            }
+            for (int i = 0; i < DONE_MARKER.length; i++) {
+                if (line.get(line.position() + i) != DONE_MARKER[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private final class Worker {
+        private final String name = "worker-" + workerCount.incrementAndGet();
+        private final Process process;
+        private final Writer in;
+        private final WorkerOutput output = new WorkerOutput();
+        private final Future<?> outPump;
+        private final Future<?> errPump;
+        private int jobs = 0;
+        private boolean healthy = true;
+
+        private Worker() throws IOException {
+            List<String> command = new ArrayList<>();
+            command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+            command.addAll(jvmArguments);
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(WorkerMain.class.getName());
+            command.add(WorkerMain.SERVE_OPTION);
+            if (settleHeap) {
+                command.add(WorkerMain.SETTLE_OPTION);
+            }
+            process = new ProcessBuilder(command).start();
+            workers.add(this);
+            in = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8);
+            StreamRedirector outRedirector = new StreamRedirector(List.of(output));
+            outRedirector.setCharset(StandardCharsets.UTF_8);
+            outRedirector.setInputStream(process.getInputStream());
+            StreamRedirector errRedirector = new StreamRedirector(List.of(new ErrStreamReader()));
+            errRedirector.setInputStream(process.getErrorStream());
+            outPump = StreamPumps.start(outRedirector);
+            errPump = StreamPumps.start(errRedirector);
+            FeatJAR.log().debug("Started " + name);
+        }
+
+        /**
+         * Runs the given algorithm and stores time and resources in the given result.
+         *
+         * @return whether the job succeeded in time
+         */
+        private <R> boolean run(JavaAlgorithm<R> algorithm, Result<R> result) throws Exception {
+            Job job = new Job(String.valueOf(jobCount.incrementAndGet()), algorithm);
+            jobs++;
+            output.job = job;
+            try {
+                List<String> fields = new ArrayList<>();
+                fields.add(job.id);
+                fields.add(algorithm.getJobClass().getName());
+                fields.addAll(algorithm.getJobArguments());
+                long startTime = System.nanoTime();
+                in.write(WorkerMain.encode(fields));
+                in.write('\n');
+                in.flush();
+                List<String> done = await(job, startTime, result);
+                if (done == null) {
+                    healthy = false;
+                    return false;
+                }
+                boolean noError = WorkerMain.STATUS_OK.equals(done.get(2));
+                result.setTerminatedInTime(true);
+                result.setNoError(noError);
+                result.setTime(Long.parseLong(done.get(3)));
+                result.setCpuTime(Long.parseLong(done.get(4)));
+                result.setAllocatedBytes(Long.parseLong(done.get(5)));
+                result.setGcCount(Long.parseLong(done.get(6)));
+                result.setGcTime(Long.parseLong(done.get(7)));
+                result.setPeakHeap(Long.parseLong(done.get(8)));
+                return noError;
+            } finally {
+                output.job = null;
+            }
+        }
+
+        private List<String> await(Job job, long startTime, Result<?> result) throws Exception {
+            try {
+                CompletableFuture.anyOf(job.done, process.onExit()).get(timeout, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                FeatJAR.log().info("Timeout in " + name + ", replacing it");
+                ProcessRunner.destroyTree(process);
+                close();
+                result.setTerminatedInTime(false);
+                result.setNoError(true);
+                result.setTime(System.nanoTime() - startTime);
+                return null;
+            }
+            if (!job.done.isDone()) {
+                // the worker died, its remaining output may still contain the done marker
+                drain();
+            }
+            if (!job.done.isDone()) {
+                FeatJAR.log().error(name + " terminated unexpectedly");
+                result.setTerminatedInTime(true);
+                result.setNoError(false);
+                result.setTime(System.nanoTime() - startTime);
+                return null;
+            }
+            return job.done.get();
+        }
+
+        private boolean isReusable() {
+            return healthy && jobs < maximumJobsPerWorker && process.isAlive();
+        }
+
+        /**
+         * Stops the worker, waiting shortly for it to exit by itself after its input is closed.
+         */
+        private void close() {
+            workers.remove(this);
+            try {
+                in.close();
+                if (!process.waitFor(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (IOException e) {
+                process.destroyForcibly();
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+            drain();
+            FeatJAR.log().debug("Stopped " + name + " after " + jobs + " jobs");
+        }
+
+        private void drain() {
+            for (Future<?> pump : List.of(outPump, errPump)) {
+                try {
+                    pump.get(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+                } catch (ExecutionException | TimeoutException e) {
+                    FeatJAR.log().error(e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
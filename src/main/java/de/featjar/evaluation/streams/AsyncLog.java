@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.streams;
+
+import de.featjar.base.FeatJAR;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Logs process output on a background thread, so that stream pumps do not wait for each line to be printed.
+ * The queue is bounded. If the log cannot keep up, the pumps block until there is space again, which in turn blocks
+ * the processes once their pipes are full.
+ */
+final class AsyncLog {
+
+    private static final int CAPACITY = 8192;
+
+    private static final BlockingQueue<String> QUEUE = new ArrayBlockingQueue<>(CAPACITY);
+
+    static {
+        Thread thread = new Thread(AsyncLog::run, "process-output-log");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private AsyncLog() {}
+
+    static void debug(String line) throws InterruptedException {
+        QUEUE.put(line);
+    }
+
+    private static void run() {
+        try {
+            while (true) {
+                FeatJAR.log().debug(QUEUE.take());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -20,7 +20,30 @@
  */
 package de.featjar.evaluation.streams;
 
+import java.nio.ByteBuffer;
+
 public interface IOutputReader {
 
     void readOutput(String line) throws Exception;
+
+    /**
+     * Returns whether the given line should be passed to {@link #readOutput(String)}. Lines that are not accepted by
+     * any reader are never decoded.
+     *
+     * @param line the undecoded line without its line terminator
+     */
+    default boolean accepts(ByteBuffer line) {
+        return true;
+    }
+
+    /**
+     * Passes an accepted line to this reader before it is decoded. Readers that process the raw bytes return
+     * {@code true}, in which case {@link #readOutput(String)} is not called for the line.
+     *
+     * @param line the undecoded line without its line terminator
+     * @return whether the line was consumed
+     */
+    default boolean readOutput(ByteBuffer line) throws Exception {
+        return false;
+    }
 }
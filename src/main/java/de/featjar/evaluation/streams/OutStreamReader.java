@@ -20,12 +20,30 @@
  */
 package de.featjar.evaluation.streams;
 
-import de.featjar.base.FeatJAR;
+import java.nio.ByteBuffer;
 
+/**
+ * Logs the output of a process at debug level.
+ * If disabled, the reader does not accept any line, so that the output is not even decoded for it.
+ */
 public class OutStreamReader implements IOutputReader {
 
+    private final boolean enabled;
+
+    /**
+     * @param enabled whether the output is logged
+     */
+    public OutStreamReader(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public boolean accepts(ByteBuffer line) {
+        return enabled;
+    }
+
     @Override
     public void readOutput(String line) throws Exception {
-        FeatJAR.log().debug(line);
+        AsyncLog.debug(line);
     }
 }
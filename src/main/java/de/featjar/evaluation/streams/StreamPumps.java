@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.streams;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs {@link StreamRedirector stream redirectors} of external processes.
+ * On Java 21 and later, each redirector runs on its own virtual thread. On older runtimes, a cached pool of daemon
+ * threads is used, so that threads are reused across processes.
+ */
+public final class StreamPumps {
+
+    private static boolean virtual;
+    private static final ExecutorService EXECUTOR = createExecutor();
+
+    private StreamPumps() {}
+
+    public static Future<?> start(StreamRedirector redirector) {
+        return EXECUTOR.submit(redirector);
+    }
+
+    /**
+     * Returns whether the streams are pumped by virtual threads.
+     */
+    public static boolean isVirtual() {
+        return virtual;
+    }
+
+    private static ExecutorService createExecutor() {
+        try {
+            // looked up reflectively, as the project is compiled for Java 11
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            ExecutorService executor = (ExecutorService) factory.invoke(null);
+            virtual = true;
+            return executor;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            AtomicInteger threadCount = new AtomicInteger();
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "stream-pump-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -21,16 +21,34 @@
 package de.featjar.evaluation.streams;
 
 import de.featjar.base.FeatJAR;
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 
+/**
+ * Reads the output of a process and passes it to {@link IOutputReader output readers} line by line.
+ * The output is read as bytes into a fixed buffer. Optionally, the raw output is copied to a file. A line is only
+ * decoded if at least one reader {@link IOutputReader#accepts(ByteBuffer) accepts} it and does not
+ * {@link IOutputReader#readOutput(ByteBuffer) consume} its raw bytes.
+ * As the output is processed on the reading thread, a slow reader blocks the process once the pipe is full instead
+ * of buffering an unbounded amount of output.
+ */
 public class StreamRedirector implements Runnable {
 
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_LINE_LENGTH = 1 << 20;
+
     private final List<IOutputReader> outputReaderList;
     private InputStream in;
+    private Path teeFile;
+    private Charset charset = Charset.defaultCharset();
 
     public StreamRedirector(List<IOutputReader> outputReaderList) {
         this.outputReaderList = outputReaderList;
@@ -40,19 +58,128 @@ public class StreamRedirector implements Runnable {
         this.in = in;
     }
 
+    /**
+     * Sets a file the raw output is copied to.
+     */
+    public void setTeeFile(Path teeFile) {
+        this.teeFile = teeFile;
+    }
+
+    public void setCharset(Charset charset) {
+        this.charset = charset;
+    }
+
     @Override
     public void run() {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in))) {
-            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
-                for (final IOutputReader outputReader : outputReaderList) {
-                    try {
-                        outputReader.readOutput(line);
-                    } catch (final Exception e) {
+        final int[] failures = new int[outputReaderList.size()];
+        try (ReadableByteChannel channel = Channels.newChannel(in);
+                FileChannel tee = teeFile == null
+                        ? null
+                        : FileChannel.open(
+                                teeFile,
+                                StandardOpenOption.CREATE,
+                                StandardOpenOption.WRITE,
+                                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            // start of the current line in the buffer
+            int lineStart = 0;
+            boolean truncated = false;
+            while (true) {
+                int readStart = buffer.position();
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+                int end = buffer.position();
+                if (tee != null) {
+                    ByteBuffer written = buffer.duplicate();
+                    written.limit(end);
+                    written.position(readStart);
+                    while (written.hasRemaining()) {
+                        tee.write(written);
+                    }
+                }
+                for (int lineEnd = indexOf(buffer, readStart, end);
+                        lineEnd >= 0;
+                        lineEnd = indexOf(buffer, lineStart, end)) {
+                    if (!truncated) {
+                        processLine(buffer, lineStart, lineEnd, failures);
+                    }
+                    truncated = false;
+                    lineStart = lineEnd + 1;
+                }
+                if (lineStart > 0) {
+                    // move the incomplete line to the start of the buffer
+                    buffer.flip();
+                    buffer.position(lineStart);
+                    buffer.compact();
+                    lineStart = 0;
+                } else if (!buffer.hasRemaining()) {
+                    if (buffer.capacity() < MAX_LINE_LENGTH) {
+                        ByteBuffer largerBuffer = ByteBuffer.allocate(buffer.capacity() * 2);
+                        buffer.flip();
+                        largerBuffer.put(buffer);
+                        buffer = largerBuffer;
+                    } else {
+                        // an overlong line is passed on truncated and its remainder is skipped
+                        if (!truncated) {
+                            processLine(buffer, 0, buffer.position(), failures);
+                        }
+                        truncated = true;
+                        buffer.clear();
                     }
                 }
             }
+            if (buffer.position() > lineStart && !truncated) {
+                processLine(buffer, lineStart, buffer.position(), failures);
+            }
         } catch (final IOException e) {
             FeatJAR.log().error(e);
         }
+        for (int i = 0; i < failures.length; i++) {
+            if (failures[i] > 1) {
+                FeatJAR.log().error("%s failed on %d lines", outputReaderList.get(i), failures[i]);
+            }
+        }
+    }
+
+    private void processLine(ByteBuffer buffer, int start, int end, int[] failures) {
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        ByteBuffer line = buffer.duplicate();
+        line.limit(end);
+        line.position(start);
+        line = line.slice().asReadOnlyBuffer();
+        String decodedLine = null;
+        for (int i = 0; i < outputReaderList.size(); i++) {
+            final IOutputReader outputReader = outputReaderList.get(i);
+            try {
+                line.rewind();
+                if (outputReader.accepts(line)) {
+                    line.rewind();
+                    if (outputReader.readOutput(line)) {
+                        continue;
+                    }
+                    if (decodedLine == null) {
+                        line.rewind();
+                        decodedLine = charset.decode(line).toString();
+                    }
+                    outputReader.readOutput(decodedLine);
+                }
+            } catch (final Exception e) {
+                if (failures[i]++ == 0) {
+                    FeatJAR.log().error(e);
+                }
+            }
+        }
+    }
+
+    private static int indexOf(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
     }
 }
@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Decides when to stop repeating the measurements of a set of variants.
+ * For each variant, a distribution-free confidence interval of the median is computed from the order statistics of
+ * its measurements. The repetitions are done once each variant's interval, relative to its median, is no wider
+ * than the target precision, but not before the minimum and at the latest at the maximum number of repetitions.
+ * Timeouts are recorded as {@link Long#MAX_VALUE}. A variant whose median is a timeout is considered done.
+ */
+public class AdaptiveRepetition {
+
+    private final String[] variants;
+    private final List<long[]> measurements = new ArrayList<>();
+    private final int minimumRepetitions;
+    private final int maximumRepetitions;
+    private final double targetPrecision;
+    private final double confidenceLevel;
+
+    /**
+     * @param minimumRepetitions the number of repetitions that are always done
+     * @param maximumRepetitions the number of repetitions after which to stop in any case
+     * @param targetPrecision the largest acceptable width of the confidence interval divided by the median
+     * @param confidenceLevel the confidence level of the interval, for instance 0.95
+     * @param variants the names of the measured variants
+     */
+    public AdaptiveRepetition(
+            int minimumRepetitions,
+            int maximumRepetitions,
+            double targetPrecision,
+            double confidenceLevel,
+            String... variants) {
+        if (minimumRepetitions < 1 || maximumRepetitions < minimumRepetitions) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid repetitions %d to %d. Must be positive and ascending.",
+                    minimumRepetitions, maximumRepetitions));
+        }
+        if (confidenceLevel <= 0 || confidenceLevel >= 1) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid confidence level %f. Must be between 0 and 1.", confidenceLevel));
+        }
+        this.variants = variants;
+        this.minimumRepetitions = minimumRepetitions;
+        this.maximumRepetitions = maximumRepetitions;
+        this.targetPrecision = targetPrecision;
+        this.confidenceLevel = confidenceLevel;
+    }
+
+    /**
+     * Adds the measurements of one repetition. Repetitions in which a variant failed must not be added, as the
+     * failed variant has no time.
+     *
+     * @param times the time of each variant in nanoseconds, in the order of the variants
+     */
+    public synchronized void add(long... times) {
+        if (times.length != variants.length) {
+            throw new IllegalArgumentException(
+                    String.format("Expected %d measurements, got %d.", variants.length, times.length));
+        }
+        measurements.add(times.clone());
+    }
+
+    /**
+     * Returns whether no further repetitions are needed.
+     */
+    public synchronized boolean isDone() {
+        int count = measurements.size();
+        if (count >= maximumRepetitions) {
+            return true;
+        }
+        if (count < minimumRepetitions) {
+            return false;
+        }
+        for (int i = 0; i < variants.length; i++) {
+            double precision = getPrecision(i);
+            if (!(precision <= targetPrecision)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String[] getVariants() {
+        return variants;
+    }
+
+    public synchronized int getRepetitions() {
+        return measurements.size();
+    }
+
+    /**
+     * Returns the median of the given variant, or -1 if nothing was measured yet.
+     */
+    public synchronized long getMedian(int variant) {
+        long[] sorted = getSorted(variant);
+        if (sorted.length == 0) {
+            return -1;
+        }
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 || sorted[middle] == Long.MAX_VALUE
+                ? sorted[middle]
+                : sorted[middle - 1] + (sorted[middle] - sorted[middle - 1]) / 2;
+    }
+
+    /**
+     * Returns the confidence interval of the median of the given variant as {@code [lower, upper]}, or
+     * {@code null} if there are too few measurements for the confidence level.
+     */
+    public synchronized long[] getConfidenceInterval(int variant) {
+        long[] sorted = getSorted(variant);
+        int rank = getLowerRank(sorted.length, confidenceLevel);
+        return rank < 1 ? null : new long[] {sorted[rank - 1], sorted[sorted.length - rank]};
+    }
+
+    /**
+     * Returns the width of the confidence interval of the given variant divided by its median, 0 if the median is
+     * a timeout, or {@link Double#NaN} if there are too few measurements for the confidence level.
+     */
+    public synchronized double getPrecision(int variant) {
+        long median = getMedian(variant);
+        if (median == Long.MAX_VALUE) {
+            return 0;
+        }
+        long[] interval = getConfidenceInterval(variant);
+        if (interval == null) {
+            return Double.NaN;
+        }
+        if (interval[1] == Long.MAX_VALUE) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return median == 0 ? 0 : (interval[1] - interval[0]) / (double) median;
+    }
+
+    private long[] getSorted(int variant) {
+        long[] sorted = new long[measurements.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = measurements.get(i)[variant];
+        }
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Returns the largest rank {@code k} (starting at 1) such that the {@code k}-th smallest and the {@code k}-th
+     * largest of {@code n} measurements enclose the median with at least the given confidence, or 0 if there is no
+     * such rank. The median lies below the {@code k}-th smallest measurement only if fewer than {@code k}
+     * measurements are below it, which has a binomial probability with success probability 1/2.
+     * The probabilities are computed in log space, as {@code 0.5^n} underflows for more than 1074 measurements.
+     */
+    static int getLowerRank(int n, double confidenceLevel) {
+        double alpha = (1 - confidenceLevel) / 2;
+        // log of P(X = k), starting with P(X = 0) = 0.5^n
+        double logProbability = -n * Math.log(2);
+        double cumulativeProbability = 0;
+        int rank = 0;
+        for (int k = 0; k <= n / 2; k++) {
+            double probability = Math.exp(logProbability);
+            // P(X <= k - 1) must not exceed alpha for rank k
+            if (cumulativeProbability + probability > alpha) {
+                break;
+            }
+            cumulativeProbability += probability;
+            rank = k + 1;
+            logProbability += Math.log(n - k) - Math.log(k + 1);
+        }
+        return rank;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.util;
+
+import de.featjar.base.FeatJAR;
+import de.featjar.base.computation.Computations;
+import de.featjar.base.computation.IComputation;
+import de.featjar.base.data.Pair;
+import de.featjar.formula.analysis.VariableMap;
+import de.featjar.formula.analysis.bool.BooleanClauseList;
+import de.featjar.formula.analysis.bool.ComputeBooleanRepresentation;
+import de.featjar.formula.analysis.bool.IBooleanRepresentation;
+import de.featjar.formula.structure.formula.IFormula;
+import de.featjar.formula.transformer.ComputeCNFFormula;
+import de.featjar.formula.transformer.ComputeNNFFormula;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Persistent cache for the boolean CNF representation of models.
+ * Entries are keyed by a hash of the model file and the {@link #TRANSFORMATION transformation settings} and store the
+ * distinct clauses of a {@link ClauseArena} and the variable map in a compact binary format.
+ */
+public class CNFCache {
+
+    /**
+     * Identifies the transformation applied to the models. Must be changed whenever the transformation changes.
+     */
+    public static final String TRANSFORMATION = "nnf-cnf-boolean-distinct-v1";
+
+    private static final int MAGIC = 0x464A434E;
+    private static final int FORMAT_VERSION = 2;
+    private static final String FILE_EXTENSION = ".cnf";
+
+    private final Path cacheDirectory;
+
+    public CNFCache(Path cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    /**
+     * Transforms the given formula into a list of distinct boolean clauses.
+     * The clauses keep the order of their first occurrence.
+     *
+     * @param formula the formula of the model
+     */
+    public static Pair<ClauseArena, VariableMap> transform(IFormula formula) {
+        ComputeBooleanRepresentation<IFormula, IBooleanRepresentation> cnf = Computations.of(formula)
+                .map(ComputeNNFFormula::new)
+                .map(ComputeCNFFormula::new)
+                .map(ComputeBooleanRepresentation::new);
+        IComputation<BooleanClauseList> clauses = cnf.map(Computations::getKey).cast(BooleanClauseList.class);
+        return new Pair<>(
+                ClauseArena.of(clauses.compute()), cnf.map(Computations::getValue).compute());
+    }
+
+    /**
+     * Returns the cached CNF of the given model, or transforms the formula and stores the result.
+     *
+     * @param modelFile the file the formula was read from
+     * @param modelHash the content hash of the model file, or {@code null} to compute it from the file
+     * @param formula the formula of the model
+     */
+    public Pair<ClauseArena, VariableMap> get(Path modelFile, String modelHash, IFormula formula) {
+        Path cacheFile = null;
+        try {
+            cacheFile = cacheDirectory.resolve(
+                    computeKey(modelHash != null ? modelHash : ModelCatalog.hash(modelFile)) + FILE_EXTENSION);
+            if (Files.isReadable(cacheFile)) {
+                return read(cacheFile);
+            }
+        } catch (final IOException e) {
+            FeatJAR.log().warning("Could not read cached CNF of " + modelFile + ": " + e.getMessage());
+        }
+        Pair<ClauseArena, VariableMap> cnf = transform(formula);
+        if (cacheFile != null) {
+            try {
+                write(cacheFile, cnf);
+            } catch (final IOException e) {
+                FeatJAR.log().warning("Could not cache CNF of " + modelFile + ": " + e.getMessage());
+            }
+        }
+        return cnf;
+    }
+
+    /**
+     * Computes the cache key of a model, which is the SHA-256 hash of its content hash and the transformation.
+     *
+     * @param modelHash the content hash of the model file, as computed by {@link ModelCatalog#hash(Path)}
+     */
+    public static String computeKey(String modelHash) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update((modelHash + "/" + TRANSFORMATION + "/" + FORMAT_VERSION).getBytes(StandardCharsets.UTF_8));
+        return ModelCatalog.toHex(digest.digest());
+    }
+
+    private Pair<ClauseArena, VariableMap> read(Path cacheFile) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Invalid cache file " + cacheFile);
+            }
+            int variableCount = in.readInt();
+            List<String> variableNames = new ArrayList<>(variableCount);
+            for (int i = 0; i < variableCount; i++) {
+                variableNames.add(in.readUTF());
+            }
+            int clauseCount = in.readInt();
+            ClauseArena.Builder clauses = new ClauseArena.Builder(variableCount);
+            for (int i = 0; i < clauseCount; i++) {
+                int[] literals = new int[in.readInt()];
+                for (int j = 0; j < literals.length; j++) {
+                    literals[j] = in.readInt();
+                }
+                clauses.add(literals);
+            }
+            return new Pair<>(clauses.build(), new VariableMap(variableNames));
+        }
+    }
+
+    private static void write(Path cacheFile, Pair<ClauseArena, VariableMap> cnf) throws IOException {
+        Files.createDirectories(cacheFile.getParent());
+        // write to a temporary file first, so that concurrent runs never see a partial entry
+        Path tempFile = Files.createTempFile(cacheFile.getParent(), cacheFile.getFileName().toString(), ".tmp");
+        try {
+            ClauseArena clauses = cnf.getKey();
+            VariableMap variableMap = cnf.getValue();
+            try (DataOutputStream out =
+                    new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                int variableCount = clauses.getVariableCount();
+                out.writeInt(variableCount);
+                for (int i = 1; i <= variableCount; i++) {
+                    out.writeUTF(variableMap.get(i).orElseThrow());
+                }
+                out.writeInt(clauses.getClauseCount());
+                for (int i = 0; i < clauses.getClauseCount(); i++) {
+                    int[] literals = clauses.getClause(i);
+                    out.writeInt(literals.length);
+                    for (int literal : literals) {
+                        out.writeInt(literal);
+                    }
+                }
+            }
+            Files.move(tempFile, cacheFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+}
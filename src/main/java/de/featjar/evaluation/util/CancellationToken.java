@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.util;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Signals that a running analysis should stop.
+ * Analyses check the token between their stages and stop with a {@link CancellationException}. Threads bound to the
+ * token are interrupted on cancellation, which stops computations that react to interrupts within a stage.
+ */
+public final class CancellationToken {
+
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean cancelled;
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Cancels the token and runs all registered listeners. Has no effect if the token is already cancelled.
+     */
+    public void cancel() {
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+        }
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+        listeners.clear();
+    }
+
+    /**
+     * Registers an action that is run once the token is cancelled, or immediately if it already is.
+     */
+    public void onCancel(Runnable listener) {
+        synchronized (this) {
+            if (!cancelled) {
+                listeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    /**
+     * Interrupts the current thread when the token is cancelled.
+     * The binding must be released with {@link #unbindCurrentThread()} before the thread does other work.
+     */
+    public void bindCurrentThread() {
+        Thread thread = Thread.currentThread();
+        onCancel(new ThreadInterrupter(thread));
+    }
+
+    /**
+     * Releases the binding of the current thread and clears an interrupt caused by this token.
+     */
+    public void unbindCurrentThread() {
+        Thread thread = Thread.currentThread();
+        for (Runnable listener : listeners) {
+            if (listener instanceof ThreadInterrupter && ((ThreadInterrupter) listener).thread == thread) {
+                // cancel() may still run the listener from its snapshot, which must not interrupt later work
+                ((ThreadInterrupter) listener).deactivate();
+                listeners.remove(listener);
+            }
+        }
+        if (cancelled) {
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * @throws CancellationException if the token is cancelled
+     */
+    public void throwIfCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Analysis was cancelled");
+        }
+    }
+
+    private static final class ThreadInterrupter implements Runnable {
+        private final Thread thread;
+        private boolean active = true;
+
+        private ThreadInterrupter(Thread thread) {
+            this.thread = thread;
+        }
+
+        private synchronized void deactivate() {
+            active = false;
+        }
+
+        @Override
+        public synchronized void run() {
+            if (active) {
+                thread.interrupt();
+            }
+        }
+    }
+}
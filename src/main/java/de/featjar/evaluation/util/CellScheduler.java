@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs evaluation cells on a bounded pool of worker threads.
+ * The pool never has more threads than available cores minus one (the
+ * remaining core is left to the thread that prepares the cells), so at most
+ * one timed cell is running per core at any time. An analysis that timed out
+ * keeps occupying its worker until it has stopped, as enforced by the
+ * {@link de.featjar.evaluation.process.AnalysisExecutor}.
+ * With a single worker, cells are run directly on the calling thread.
+ */
+public class CellScheduler implements AutoCloseable {
+
+    public interface Cell {
+        void run() throws Exception;
+    }
+
+    private final int workerCount;
+    private final ExecutorService executor;
+    private final List<Future<?>> pending = new ArrayList<>();
+
+    public CellScheduler(int workers) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        workerCount = Math.max(1, Math.min(workers, cores - 1));
+        if (workerCount > 1) {
+            AtomicInteger threadCount = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(workerCount, r -> {
+                Thread thread = new Thread(r, "cell-worker-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            executor = null;
+        }
+    }
+
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    public boolean isParallel() {
+        return executor != null;
+    }
+
+    public void submit(Cell cell) throws Exception {
+        if (executor == null) {
+            cell.run();
+        } else {
+            synchronized (pending) {
+                pending.add(executor.submit(() -> {
+                    cell.run();
+                    return null;
+                }));
+            }
+        }
+    }
+
+    /**
+     * Waits until all submitted cells are finished.
+     *
+     * @throws Exception the first exception thrown by any cell
+     */
+    public void await() throws Exception {
+        List<Future<?>> futures;
+        synchronized (pending) {
+            futures = new ArrayList<>(pending);
+            pending.clear();
+        }
+        Exception firstException = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (firstException == null) {
+                    firstException = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+            }
+        }
+        if (firstException != null) {
+            throw firstException;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.util;
+
+import de.featjar.formula.analysis.bool.BooleanClause;
+import de.featjar.formula.analysis.bool.BooleanClauseList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable store of distinct clauses backed by a single flat literal array.
+ * Duplicates are removed once while building, using primitive hashing instead of boxed clause sets.
+ * The arena is used to deduplicate, cache, and persist clauses. Analyses do not run on it: FeatJAR analyses consume
+ * {@link BooleanClause} objects, so they get a clause list created by {@link #toClauseList()}, and the arena is
+ * usually discarded afterwards.
+ */
+public final class ClauseArena {
+
+    /**
+     * Collects clauses and drops duplicates. Two clauses are equal if they contain the same literals in the same
+     * order, as with {@link BooleanClause#equals(Object)}.
+     */
+    public static final class Builder {
+        private final int variableCount;
+
+        private int[] literals = new int[1024];
+        private int[] offsets = new int[257];
+        private int[] hashes = new int[256];
+        private int clauseCount;
+
+        private int[] table = new int[512];
+
+        public Builder(int variableCount) {
+            this.variableCount = variableCount;
+        }
+
+        /**
+         * Adds a clause unless an equal clause was added before.
+         *
+         * @return {@code true} if the clause was added
+         */
+        public boolean add(int... clause) {
+            int hash = Arrays.hashCode(clause);
+            int mask = table.length - 1;
+            int slot = mix(hash) & mask;
+            for (int entry = table[slot]; entry != 0; entry = table[slot]) {
+                int index = entry - 1;
+                if (hashes[index] == hash && equalsClause(index, clause)) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            append(clause, hash);
+            table[slot] = clauseCount;
+            if (clauseCount * 2 > table.length) {
+                rehash();
+            }
+            return true;
+        }
+
+        public ClauseArena build() {
+            return new ClauseArena(
+                    variableCount,
+                    Arrays.copyOf(literals, offsets[clauseCount]),
+                    Arrays.copyOf(offsets, clauseCount + 1));
+        }
+
+        private boolean equalsClause(int index, int[] clause) {
+            int start = offsets[index];
+            int length = offsets[index + 1] - start;
+            return length == clause.length && Arrays.equals(literals, start, start + length, clause, 0, length);
+        }
+
+        private void append(int[] clause, int hash) {
+            int start = offsets[clauseCount];
+            if (start + clause.length > literals.length) {
+                literals = Arrays.copyOf(literals, Math.max(literals.length * 2, start + clause.length));
+            }
+            System.arraycopy(clause, 0, literals, start, clause.length);
+            if (clauseCount + 1 >= hashes.length) {
+                hashes = Arrays.copyOf(hashes, hashes.length * 2);
+                offsets = Arrays.copyOf(offsets, hashes.length + 1);
+            }
+            hashes[clauseCount] = hash;
+            clauseCount++;
+            offsets[clauseCount] = start + clause.length;
+        }
+
+        private void rehash() {
+            table = new int[table.length * 2];
+            int mask = table.length - 1;
+            for (int index = 0; index < clauseCount; index++) {
+                int slot = mix(hashes[index]) & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = index + 1;
+            }
+        }
+
+        private static int mix(int hash) {
+            int h = hash * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    private final int variableCount;
+    private final int[] literals;
+    private final int[] offsets;
+
+    private ClauseArena(int variableCount, int[] literals, int[] offsets) {
+        this.variableCount = variableCount;
+        this.literals = literals;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Creates an arena of the distinct clauses of the given list.
+     */
+    public static ClauseArena of(BooleanClauseList clauses) {
+        Builder builder = new Builder(clauses.getVariableCount());
+        clauses.stream().forEach(clause -> builder.add(clause.stream().toArray()));
+        return builder.build();
+    }
+
+    public int getVariableCount() {
+        return variableCount;
+    }
+
+    public int getClauseCount() {
+        return offsets.length - 1;
+    }
+
+    public int getLiteralCount() {
+        return offsets[offsets.length - 1];
+    }
+
+    /**
+     * Returns a copy of the literals of the clause with the given index.
+     */
+    public int[] getClause(int index) {
+        return Arrays.copyOfRange(literals, offsets[index], offsets[index + 1]);
+    }
+
+    /**
+     * Creates a clause list with one {@link BooleanClause} per distinct clause of this arena. The list is a copy, not
+     * a view, as {@link BooleanClauseList} can only hold clause objects.
+     */
+    public BooleanClauseList toClauseList() {
+        int clauseCount = getClauseCount();
+        List<BooleanClause> clauses = new ArrayList<>(clauseCount);
+        for (int i = 0; i < clauseCount; i++) {
+            clauses.add(new BooleanClause(getClause(i)));
+        }
+        return new BooleanClauseList(clauses, variableCount);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.util;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+/**
+ * Brings the heap into a stable state before a measurement.
+ * Instead of a single {@link System#gc()} call, which the JVM may ignore or run asynchronously, collections are
+ * requested until one has actually happened and the used heap does not shrink any further.
+ */
+public final class GCSettler {
+
+    private static final int MAXIMUM_ROUNDS = 5;
+    private static final long COLLECTION_WAIT_MILLIS = 100;
+    private static final double SHRINK_TOLERANCE = 0.01;
+
+    private GCSettler() {}
+
+    public static void settle() {
+        final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+        long usedHeap = memoryBean.getHeapMemoryUsage().getUsed();
+        for (int round = 0; round < MAXIMUM_ROUNDS; round++) {
+            final long collectionCount = getCollectionCount();
+            System.gc();
+            final long deadline = System.currentTimeMillis() + COLLECTION_WAIT_MILLIS;
+            while (getCollectionCount() == collectionCount && System.currentTimeMillis() < deadline) {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            final long newUsedHeap = memoryBean.getHeapMemoryUsage().getUsed();
+            if (newUsedHeap >= usedHeap * (1 - SHRINK_TOLERANCE)) {
+                return;
+            }
+            usedHeap = newUsedHeap;
+        }
+    }
+
+    public static long getCollectionCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gcBean.getCollectionCount());
+        }
+        return count;
+    }
+}
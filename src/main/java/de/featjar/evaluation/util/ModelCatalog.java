@@ -0,0 +1,427 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.util;
+
+import de.featjar.base.FeatJAR;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Index of the models in a model directory, built in a single pass over the directory, its model folders, and its
+ * zip archives.
+ * Each model name is mapped to a concrete file, together with its size, modification time, and content hash.
+ * The catalog is persisted, so that content hashes of unchanged files are reused by the next run.
+ * Zip archives are opened once and stay open until the catalog is closed.
+ */
+public class ModelCatalog implements AutoCloseable {
+
+    /**
+     * A model file in the catalog.
+     */
+    public static final class Entry {
+        private final String name;
+        private final String archive;
+        private final String location;
+        private final long size;
+        private final long lastModified;
+        private volatile String hash;
+
+        private Entry(String name, String archive, String location, long size, long lastModified, String hash) {
+            this.name = name;
+            this.archive = archive;
+            this.location = location;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the zip archive containing the model relative to the model directory, or {@code null} if the model
+         * is a regular file.
+         */
+        public String getArchive() {
+            return archive;
+        }
+
+        /**
+         * Returns the location of the model relative to the model directory or to the root of its archive.
+         */
+        public String getLocation() {
+            return location;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+    }
+
+    private static final String HEADER = "#model-catalog-v1";
+    private static final Pattern FILE_NAME_PATTERN = Pattern.compile("^(.+)\\.\\w+$");
+
+    private final Path rootPath;
+    private final String defaultFileName;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private final Map<String, FileSystem> archives = new ConcurrentHashMap<>();
+    private final Map<Path, Entry> entriesByPath = new ConcurrentHashMap<>();
+    private final Map<String, Entry> entriesByFile = new LinkedHashMap<>();
+
+    private ModelCatalog(Path rootPath, String defaultFileName) {
+        this.rootPath = rootPath;
+        this.defaultFileName = defaultFileName;
+    }
+
+    /**
+     * Builds the catalog of the given model directory. Content hashes are taken from the persisted catalog for all
+     * files whose size and modification time did not change.
+     *
+     * @param rootPath the model directory
+     * @param defaultFileName the name of the model file in a model folder
+     * @param catalogFile the file the catalog is persisted in, may not exist yet
+     */
+    public static ModelCatalog open(Path rootPath, String defaultFileName, Path catalogFile) throws IOException {
+        ModelCatalog catalog = new ModelCatalog(rootPath.toAbsolutePath().normalize(), defaultFileName);
+        Map<String, Entry> previousEntries =
+                Files.isReadable(catalogFile) ? readEntries(catalogFile) : Collections.emptyMap();
+        catalog.scan(previousEntries);
+        return catalog;
+    }
+
+    /**
+     * Computes the SHA-256 hash of the content of a file.
+     */
+    public static String hash(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return toHex(digest.digest());
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    public Path getRootPath() {
+        return rootPath;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public Optional<Entry> get(String name) {
+        return Optional.ofNullable(entries.get(name));
+    }
+
+    /**
+     * Returns the path of the given model. Paths of models in zip archives belong to the pooled archive file system.
+     */
+    public Optional<Path> getPath(String name) {
+        return get(name).map(this::resolve);
+    }
+
+    /**
+     * Returns the content hash of the given file if it is part of the catalog and did not change since the catalog
+     * was built. The hash is computed on first access.
+     *
+     * @return the hash, or {@code null} if the file is unknown or changed
+     */
+    public String getHash(Path file) throws IOException {
+        Entry entry = entriesByPath.get(file.toAbsolutePath().normalize());
+        if (entry == null) {
+            return null;
+        }
+        return getHash(entry);
+    }
+
+    /**
+     * Returns the content hash of the given entry, computing it on first access.
+     *
+     * @return the hash, or {@code null} if the file changed since the catalog was built
+     */
+    public String getHash(Entry entry) throws IOException {
+        String hash = entry.hash;
+        if (hash == null) {
+            Path path = resolve(entry);
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (attributes.size() != entry.size || attributes.lastModifiedTime().toMillis() != entry.lastModified) {
+                return null;
+            }
+            hash = hash(path);
+            entry.hash = hash;
+        }
+        return hash;
+    }
+
+    /**
+     * Writes the catalog, including all hashes computed so far, to the given file.
+     */
+    public void save(Path catalogFile) throws IOException {
+        Files.createDirectories(catalogFile.getParent());
+        Path tempFile = Files.createTempFile(catalogFile.getParent(), catalogFile.getFileName().toString(), ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                writer.newLine();
+                for (Map.Entry<String, Entry> namedEntry : entries.entrySet()) {
+                    Entry entry = namedEntry.getValue();
+                    writer.write(String.join(
+                            "\t",
+                            namedEntry.getKey(),
+                            entry.archive == null ? "" : entry.archive,
+                            entry.location,
+                            Long.toString(entry.size),
+                            Long.toString(entry.lastModified),
+                            entry.hash == null ? "" : entry.hash));
+                    writer.newLine();
+                }
+            }
+            Files.move(tempFile, catalogFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Returns the pooled file system of the given zip archive, opening it on first access.
+     */
+    public FileSystem getArchive(Path archive) throws IOException {
+        String key = rootPath.relativize(archive.toAbsolutePath().normalize()).toString();
+        FileSystem fileSystem = archives.get(key);
+        if (fileSystem == null) {
+            synchronized (archives) {
+                fileSystem = archives.get(key);
+                if (fileSystem == null) {
+                    URI uri = URI.create("jar:" + archive.toAbsolutePath().normalize().toUri());
+                    fileSystem = FileSystems.newFileSystem(uri, Collections.<String, Object>emptyMap());
+                    archives.put(key, fileSystem);
+                }
+            }
+        }
+        return fileSystem;
+    }
+
+    @Override
+    public void close() {
+        for (FileSystem fileSystem : archives.values()) {
+            try {
+                fileSystem.close();
+            } catch (final IOException e) {
+                FeatJAR.log().error(e);
+            }
+        }
+        archives.clear();
+    }
+
+    private Path resolve(Entry entry) {
+        if (entry.archive == null) {
+            return rootPath.resolve(entry.location);
+        }
+        try {
+            return getArchive(rootPath.resolve(entry.archive)).getPath(entry.location);
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void scan(Map<String, Entry> previousEntries) throws IOException {
+        if (!Files.isDirectory(rootPath)) {
+            return;
+        }
+        // names found in folders take precedence over plain files, which take precedence over zip archives
+        Map<String, Path> folderModels = new LinkedHashMap<>();
+        Map<String, Path> fileModels = new LinkedHashMap<>();
+        Map<String, Path> zipFiles = new LinkedHashMap<>();
+        scanDirectory(rootPath, folderModels, fileModels, zipFiles);
+
+        for (Map.Entry<String, Path> model : folderModels.entrySet()) {
+            addEntry(model.getKey(), null, model.getValue(), previousEntries);
+        }
+        for (Map.Entry<String, Path> model : fileModels.entrySet()) {
+            addEntry(model.getKey(), null, model.getValue(), previousEntries);
+        }
+        for (Path zipFile : zipFiles.values()) {
+            String archive = rootPath.relativize(zipFile).toString();
+            try {
+                for (Path root : getArchive(zipFile).getRootDirectories()) {
+                    Map<String, Path> zipFolderModels = new LinkedHashMap<>();
+                    Map<String, Path> zipFileModels = new LinkedHashMap<>();
+                    scanDirectory(root, zipFolderModels, zipFileModels, new LinkedHashMap<>());
+                    for (Map.Entry<String, Path> model : zipFolderModels.entrySet()) {
+                        addEntry(model.getKey(), archive, model.getValue(), previousEntries);
+                    }
+                    for (Map.Entry<String, Path> model : zipFileModels.entrySet()) {
+                        addEntry(model.getKey(), archive, model.getValue(), previousEntries);
+                    }
+                }
+            } catch (final IOException e) {
+                FeatJAR.log().error(e);
+            }
+        }
+    }
+
+    private void scanDirectory(
+            Path directory, Map<String, Path> folderModels, Map<String, Path> fileModels, Map<String, Path> zipFiles)
+            throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String fileName = getFileName(file);
+                if (Files.isDirectory(file)) {
+                    Path model = findFolderModel(file);
+                    if (model != null) {
+                        folderModels.putIfAbsent(fileName, model);
+                    }
+                } else if (Files.isRegularFile(file) && Files.isReadable(file)) {
+                    if (fileName.endsWith(".zip")) {
+                        zipFiles.put(fileName, file);
+                        continue;
+                    }
+                    fileModels.putIfAbsent(fileName, file);
+                    Matcher matcher = FILE_NAME_PATTERN.matcher(fileName);
+                    if (matcher.matches()) {
+                        fileModels.putIfAbsent(matcher.group(1), file);
+                    }
+                }
+            }
+        }
+    }
+
+    private Path findFolderModel(Path folder) throws IOException {
+        Path defaultFile = folder.resolve(defaultFileName);
+        if (Files.isRegularFile(defaultFile)) {
+            return defaultFile;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder, "model.*")) {
+            for (Path file : files) {
+                if (Files.isRegularFile(file) && FILE_NAME_PATTERN.matcher(getFileName(file)).matches()) {
+                    return file;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void addEntry(String name, String archive, Path path, Map<String, Entry> previousEntries)
+            throws IOException {
+        if (entries.containsKey(name)) {
+            return;
+        }
+        String location = archive == null ? rootPath.relativize(path).toString() : path.toString();
+        // a file that is found under several names is represented by a single entry
+        String fileKey = archive + "!" + location;
+        Entry fileEntry = entriesByFile.get(fileKey);
+        if (fileEntry != null) {
+            entries.put(name, fileEntry);
+            return;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String hash = null;
+        Entry previousEntry = previousEntries.get(name);
+        if (previousEntry != null
+                && previousEntry.size == size
+                && previousEntry.lastModified == lastModified
+                && previousEntry.location.equals(location)
+                && Objects.equals(previousEntry.archive, archive)) {
+            hash = previousEntry.hash;
+        }
+        Entry entry = new Entry(name, archive, location, size, lastModified, hash);
+        entries.put(name, entry);
+        entriesByFile.put(fileKey, entry);
+        if (archive == null) {
+            entriesByPath.putIfAbsent(path, entry);
+            // model folders are referenced by the folder itself
+            entriesByPath.putIfAbsent(rootPath.resolve(name), entry);
+        }
+    }
+
+    private static Map<String, Entry> readEntries(Path catalogFile) {
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(catalogFile, StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(reader.readLine())) {
+                return entries;
+            }
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length == 6) {
+                    entries.put(
+                            fields[0],
+                            new Entry(
+                                    fields[0],
+                                    fields[1].isEmpty() ? null : fields[1],
+                                    fields[2],
+                                    Long.parseLong(fields[3]),
+                                    Long.parseLong(fields[4]),
+                                    fields[5].isEmpty() ? null : fields[5]));
+                }
+            }
+        } catch (final IOException | NumberFormatException e) {
+            FeatJAR.log().warning("Could not read model catalog " + catalogFile + ": " + e.getMessage());
+        }
+        return entries;
+    }
+
+    private static String getFileName(Path file) {
+        Path fileName = file.getFileName();
+        return fileName == null ? "" : fileName.toString().replaceAll("/$", "");
+    }
+}
@@ -43,6 +43,7 @@ public class ModelReader<T> {
     private String defaultFileName = "model.xml";
     private Path pathToFiles;
     private IFormatSupplier<T> formatSupplier;
+    private ModelCatalog catalog;
 
     public ModelReader(Path pathToFiles, IFormatSupplier<T> formatSupplier) {
         this.pathToFiles = pathToFiles;
@@ -52,6 +53,15 @@ public class ModelReader<T> {
     public final Result<T> read(final String name) {
         Result<T> fm = null;
 
+        if (catalog != null && catalog.getRootPath().equals(pathToFiles.toAbsolutePath().normalize())) {
+            fm = catalog.getPath(name).map(this::loadFile).orElseGet(Result::empty);
+            if (fm.isPresent()) {
+                return fm;
+            }
+            // the cataloged file may be a sibling that cannot be parsed, so try all candidates as before
+            FeatJAR.log().debug("Could not load cataloged model " + name + ", scanning " + pathToFiles);
+        }
+
         fm = readFromFolder(pathToFiles, name);
         if (fm.isPresent()) {
             return fm;
@@ -83,6 +93,18 @@ public class ModelReader<T> {
         this.defaultFileName = defaultFileName;
     }
 
+    public ModelCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Sets a catalog that is used to look up models in {@link #getPathToFiles()} instead of scanning the directory
+     * and its zip archives for every name.
+     */
+    public void setCatalog(ModelCatalog catalog) {
+        this.catalog = catalog;
+    }
+
     public IFormatSupplier<T> getFormatSupplier() {
         return formatSupplier;
     }
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.util;
+
+import de.featjar.base.FeatJAR;
+import de.featjar.base.data.Result;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Loads models one after another on a background thread.
+ * At most {@code prefetch + 1} models are held at any time: the models that are currently evaluated and the models
+ * that are loaded ahead. Each model must be {@link LoadedModel#release() released} once its evaluation is finished,
+ * which allows the next model to be loaded.
+ */
+public class ModelSource<T> implements AutoCloseable {
+
+    /**
+     * A loaded model that occupies one slot of its source until it is released.
+     */
+    public static final class LoadedModel<T> {
+        private final String name;
+        private final Result<T> model;
+        private final Semaphore slots;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private LoadedModel(String name, Result<T> model, Semaphore slots) {
+            this.name = name;
+            this.model = model;
+            this.slots = slots;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Result<T> getModel() {
+            return model;
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                slots.release();
+            }
+        }
+    }
+
+    private static final LoadedModel<?> END = new LoadedModel<>(null, null, null);
+
+    private final BlockingQueue<LoadedModel<?>> queue = new LinkedBlockingQueue<>();
+    private final Semaphore slots;
+    private final Thread loader;
+    private boolean finished;
+
+    /**
+     * @param names the names of the models in the order they are needed
+     * @param loader loads the model with the given name
+     * @param prefetch the number of models that are loaded ahead of the models in use
+     */
+    public ModelSource(List<String> names, Function<String, Result<T>> loader, int prefetch) {
+        slots = new Semaphore(Math.max(0, prefetch) + 1);
+        List<String> pendingNames = new ArrayList<>(names);
+        this.loader = new Thread(() -> load(pendingNames, loader), "model-loader");
+        this.loader.setDaemon(true);
+        this.loader.start();
+    }
+
+    private void load(List<String> names, Function<String, Result<T>> loader) {
+        try {
+            for (String name : names) {
+                slots.acquire();
+                Result<T> model;
+                try {
+                    FeatJAR.log().debug("Loading model " + name);
+                    model = loader.apply(name);
+                } catch (RuntimeException e) {
+                    FeatJAR.log().error(e);
+                    model = Result.empty();
+                }
+                queue.put(new LoadedModel<>(name, model, slots));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            queue.add(END);
+        }
+    }
+
+    /**
+     * Returns the next model, waiting until it is loaded.
+     *
+     * @return the next model, or {@code null} if all models have been returned
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @SuppressWarnings("unchecked")
+    public LoadedModel<T> next() throws InterruptedException {
+        if (finished) {
+            return null;
+        }
+        LoadedModel<?> model = queue.take();
+        if (model == END) {
+            finished = true;
+            return null;
+        }
+        return (LoadedModel<T>) model;
+    }
+
+    @Override
+    public void close() {
+        loader.interrupt();
+        queue.clear();
+    }
+}
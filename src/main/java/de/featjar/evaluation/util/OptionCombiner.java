@@ -24,8 +24,17 @@ import de.featjar.base.FeatJAR;
 import de.featjar.base.cli.AListOption;
 import de.featjar.base.cli.ListOption;
 import de.featjar.base.cli.OptionList;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
 
 /**
  * Iterates over a list of {@link ListOption list options}.
@@ -37,17 +46,170 @@ public class OptionCombiner {
     private OptionList optionParser;
     private AListOption<?>[] options;
     private ProgressTracker progress;
+    private Shard shard;
+    private ToDoubleFunction<int[]> cost = combination -> 1;
 
     public final <T extends OptionCombiner> void loopOverOptions(Consumer<Integer> forEachOption) {
         Objects.requireNonNull(progress, () -> "Call init method first!");
         FeatJAR.log().info("Start");
         String string = printOptionNames(options);
         FeatJAR.log().info(string);
+        if (shard != null) {
+            FeatJAR.log().info("Shard " + shard);
+        }
 
         while (progress.hasNext()) {
             FeatJAR.log().info(progress::nextAndPrint);
             forEachOption.accept(progress.getLastChanged());
         }
+        progress.finishCurrent();
+    }
+
+    /**
+     * Returns the progress of the loop, or {@code null} before {@link #init(AListOption...)}.
+     */
+    public ProgressTracker getProgress() {
+        return progress;
+    }
+
+    /**
+     * A combination of option values visited by {@link #loopOverOptionsInParallel(int, int, Consumer)}.
+     */
+    public final class Combination {
+        private final int totalIndex;
+        private final int[] indices;
+        private final int lastChanged;
+        private final PrefixCache prefixCache;
+
+        private Combination(int totalIndex, int lastChanged, PrefixCache prefixCache) {
+            this.totalIndex = totalIndex;
+            this.indices = progress.getIndices(totalIndex);
+            this.lastChanged = lastChanged;
+            this.prefixCache = prefixCache;
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T getValue(int index) {
+            return (T) optionParser.getResult(options[index]).orElseThrow().get(indices[index]);
+        }
+
+        public int[] getIndices() {
+            return indices.clone();
+        }
+
+        /**
+         * Returns the index of the first option whose value differs from the previous combination visited by the
+         * same thread.
+         */
+        public int getLastChanged() {
+            return lastChanged;
+        }
+
+        /**
+         * Returns state shared by all combinations with the same values of the first {@code depth} options, such as
+         * a model that is loaded once for all combinations of that model. The state is created by the given factory
+         * once per prefix, even if several threads request it at the same time, and evicted when all combinations
+         * with the prefix are finished.
+         *
+         * @param depth the number of leading options the state depends on
+         * @param factory creates the state
+         */
+        public <T> T getPrefixState(int depth, Supplier<T> factory) {
+            return prefixCache.get(totalIndex, depth, factory);
+        }
+    }
+
+    /**
+     * Visits all combinations on a fork-join pool. The combinations are split into subtrees that share the values of
+     * the first {@code splitDepth} options. Each subtree is visited sequentially by one thread, so that
+     * {@link Combination#getLastChanged()} can be used within a subtree as in {@link #loopOverOptions(Consumer)},
+     * while different subtrees run in parallel. State shared across subtrees is available through
+     * {@link Combination#getPrefixState(int, Supplier)}.
+     *
+     * @param splitDepth the number of leading options that identify a subtree
+     * @param parallelism the number of threads
+     * @param forEachCombination called for each combination, possibly from several threads at the same time
+     */
+    public final void loopOverOptionsInParallel(
+            int splitDepth, int parallelism, Consumer<Combination> forEachCombination) {
+        Objects.requireNonNull(progress, () -> "Call init method first!");
+        int[] sizes = progress.getSizes();
+        if (splitDepth < 0 || splitDepth > sizes.length) {
+            throw new IllegalArgumentException("Invalid split depth " + splitDepth);
+        }
+        FeatJAR.log().info("Start");
+        FeatJAR.log().info(printOptionNames(options));
+        if (shard != null) {
+            FeatJAR.log().info("Shard " + shard);
+        }
+        BitSet selection = progress.getSelection();
+        int totalSize = progress.getTotalSize();
+        int span = 1;
+        for (int i = splitDepth; i < sizes.length; i++) {
+            span *= sizes[i];
+        }
+        PrefixCache prefixCache = new PrefixCache(sizes, selection);
+        List<Callable<Void>> subtrees = new ArrayList<>();
+        for (int start = 0; start < totalSize; start += span) {
+            int subtreeStart = start;
+            int subtreeEnd = start + span;
+            subtrees.add(() -> {
+                int[] previous = null;
+                for (int i = nextIndex(selection, subtreeStart);
+                        i >= 0 && i < subtreeEnd;
+                        i = nextIndex(selection, i + 1)) {
+                    int[] current = progress.getIndices(i);
+                    int lastChanged = 0;
+                    if (previous != null) {
+                        while (lastChanged < current.length - 1 && current[lastChanged] == previous[lastChanged]) {
+                            lastChanged++;
+                        }
+                    }
+                    previous = current;
+                    long startTime = System.nanoTime();
+                    try {
+                        forEachCombination.accept(new Combination(i, lastChanged, prefixCache));
+                    } catch (RuntimeException e) {
+                        FeatJAR.log().error(e);
+                    } finally {
+                        prefixCache.finished(i);
+                    }
+                    progress.finish(i, System.nanoTime() - startTime);
+                    FeatJAR.log().info(this::printParallelStatus);
+                }
+                return null;
+            });
+        }
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+        try {
+            for (Future<Void> subtree : pool.invokeAll(subtrees)) {
+                subtree.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            FeatJAR.log().error(e.getCause());
+        } finally {
+            pool.shutdownNow();
+            prefixCache.clear();
+        }
+    }
+
+    private String printParallelStatus() {
+        int finished = progress.getFinishedCount();
+        int selected = progress.getSelectedCount();
+        StringBuilder status = new StringBuilder(String.format(
+                "%d/%d %5.1f%% %.1f/h",
+                finished, selected, Math.floor(finished * 1000.0 / selected) / 10, progress.getThroughput()));
+        long remainingTime = progress.getEstimatedRemainingTime();
+        if (remainingTime >= 0) {
+            status.append(" ETA ").append(ProgressTracker.formatDuration(remainingTime));
+        }
+        return status.toString();
+    }
+
+    private static int nextIndex(BitSet selection, int from) {
+        return selection == null ? from : selection.nextSetBit(from);
     }
 
     private String printOptionNames(AListOption<?>... loptions) {
@@ -72,6 +234,22 @@ public class OptionCombiner {
         this.optionParser = parser;
     }
 
+    /**
+     * Sets the shard whose combinations are visited by {@link #loopOverOptions(Consumer)}, or {@code null} to visit
+     * all combinations. Must be called before {@link #init(AListOption...)}.
+     */
+    public void setShard(Shard shard) {
+        this.shard = shard;
+    }
+
+    /**
+     * Sets the estimated cost of a combination of option indices, used by {@link Shard.Strategy#COST}. By default,
+     * all combinations have the same cost.
+     */
+    public void setCost(ToDoubleFunction<int[]> cost) {
+        this.cost = cost;
+    }
+
     public void init(AListOption<?>... options) {
         this.options = options;
 
@@ -85,5 +263,10 @@ public class OptionCombiner {
             sizes[i] = size;
         }
         progress = new ProgressTracker(sizes);
+        if (shard != null) {
+            ProgressTracker tracker = progress;
+            tracker.setSelection(shard.select(
+                    tracker.getTotalSize(), totalIndex -> cost.applyAsDouble(tracker.getIndices(totalIndex))));
+        }
     }
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.util;
+
+import de.featjar.base.FeatJAR;
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Holds state that is shared by all option combinations with the same values of the leading options, such as a
+ * loaded model shared by all combinations of that model. The state of a prefix is created by the first combination
+ * that requests it and evicted once all combinations with that prefix are finished. Evicted state that is
+ * {@link AutoCloseable} is closed.
+ */
+class PrefixCache {
+
+    private static final class Prefix {
+        private final AtomicInteger remaining;
+        private Object state;
+
+        private Prefix(int count) {
+            remaining = new AtomicInteger(count);
+        }
+
+        @SuppressWarnings("unchecked")
+        private synchronized <T> T getState(Supplier<T> factory) {
+            if (state == null) {
+                state = factory.get();
+            }
+            return (T) state;
+        }
+
+        private synchronized Object removeState() {
+            Object removedState = state;
+            state = null;
+            return removedState;
+        }
+    }
+
+    // spans[d] is the number of combinations sharing a prefix of length d
+    private final int[] spans;
+    private final BitSet selection;
+    private final ConcurrentHashMap<Long, Prefix> prefixes = new ConcurrentHashMap<>();
+
+    /**
+     * @param sizes the sizes of the options
+     * @param selection the total indices of the combinations that are visited, or {@code null} if all are
+     */
+    PrefixCache(int[] sizes, BitSet selection) {
+        spans = new int[sizes.length + 1];
+        spans[sizes.length] = 1;
+        for (int i = sizes.length - 1; i >= 0; i--) {
+            spans[i] = spans[i + 1] * sizes[i];
+        }
+        this.selection = selection;
+    }
+
+    /**
+     * Returns the state of the prefix of the given length of the given combination, creating it if necessary.
+     *
+     * @param totalIndex the total index of the combination
+     * @param depth the number of leading options the state depends on
+     * @param factory creates the state
+     */
+    <T> T get(int totalIndex, int depth, Supplier<T> factory) {
+        if (depth < 0 || depth >= spans.length - 1) {
+            throw new IllegalArgumentException("Invalid prefix depth " + depth);
+        }
+        return getPrefix(totalIndex, depth).getState(factory);
+    }
+
+    /**
+     * Records that the given combination is finished, evicting the state of all prefixes that have no remaining
+     * combinations.
+     */
+    void finished(int totalIndex) {
+        for (int depth = 0; depth < spans.length - 1; depth++) {
+            long key = getKey(totalIndex, depth);
+            Prefix prefix = getPrefix(totalIndex, depth);
+            if (prefix.remaining.decrementAndGet() == 0) {
+                prefixes.remove(key);
+                close(prefix.removeState());
+            }
+        }
+    }
+
+    /**
+     * Evicts the state of all prefixes.
+     */
+    void clear() {
+        for (Prefix prefix : prefixes.values()) {
+            close(prefix.removeState());
+        }
+        prefixes.clear();
+    }
+
+    private Prefix getPrefix(int totalIndex, int depth) {
+        return prefixes.computeIfAbsent(getKey(totalIndex, depth), key -> {
+            int start = totalIndex - totalIndex % spans[depth];
+            int count = selection == null
+                    ? spans[depth]
+                    : selection.get(start, start + spans[depth]).cardinality();
+            return new Prefix(count);
+        });
+    }
+
+    private long getKey(int totalIndex, int depth) {
+        return (long) depth * spans[0] + totalIndex / spans[depth];
+    }
+
+    private static void close(Object state) {
+        if (state instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) state).close();
+            } catch (Exception e) {
+                FeatJAR.log().error(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import de.featjar.base.FeatJAR;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically writes snapshots of a {@link ProgressTracker} as JSON ({@code <name>.json}) and in the Prometheus
+ * text format ({@code <name>.prom}) to a directory. Optionally, the snapshots are also served on the loopback
+ * interface at {@code /progress.json} and {@code /metrics}.
+ */
+public class ProgressExporter implements AutoCloseable {
+
+    private static final String METRIC_PREFIX = "featjar_evaluation_";
+
+    private final ProgressTracker progress;
+    private final String job;
+    private final Path jsonFile;
+    private final Path prometheusFile;
+    private final ScheduledExecutorService scheduler;
+    private final boolean writeFiles;
+    private HttpServer server;
+
+    /**
+     * @param progress the progress to export
+     * @param job identifies the evaluation in the snapshots
+     * @param directory the directory the snapshots are written to
+     * @param name the file name of the snapshots without extension
+     * @param interval the interval between two snapshots in seconds, or 0 to not write any files
+     */
+    public ProgressExporter(ProgressTracker progress, String job, Path directory, String name, long interval) {
+        this.progress = progress;
+        this.job = job;
+        jsonFile = directory.resolve(name + ".json");
+        prometheusFile = directory.resolve(name + ".prom");
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "progress-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (interval > 0) {
+            scheduler.scheduleWithFixedDelay(this::write, 0, interval, TimeUnit.SECONDS);
+        }
+        writeFiles = interval > 0;
+    }
+
+    /**
+     * Serves the snapshots on the given port of the loopback interface.
+     *
+     * @param port the port, or 0 for any free port
+     * @return the port the snapshots are served on
+     */
+    public int serve(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/progress.json", exchange -> respond(exchange, "application/json", toJson()));
+        server.createContext(
+                "/metrics", exchange -> respond(exchange, "text/plain; version=0.0.4", toPrometheus()));
+        server.setExecutor(scheduler);
+        server.start();
+        return server.getAddress().getPort();
+    }
+
+    private static void respond(HttpExchange exchange, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Returns the current snapshot as a JSON object. Durations are in seconds, unknown values are {@code null}.
+     */
+    public String toJson() {
+        Snapshot snapshot = new Snapshot(progress);
+        return String.format(
+                Locale.ROOT,
+                "{\"job\":\"%s\",\"timestamp\":%d,\"selected\":%d,\"finished\":%d,\"measured\":%d,"
+                        + "\"percent\":%.1f,\"elapsedSeconds\":%s,\"throughputPerHour\":%s,\"etaSeconds\":%s}\n",
+                job.replace("\\", "\\\\").replace("\"", "\\\""),
+                System.currentTimeMillis(),
+                snapshot.selected,
+                snapshot.finished,
+                snapshot.measured,
+                snapshot.getPercent(),
+                toJsonValue(snapshot.elapsedSeconds),
+                toJsonValue(snapshot.throughput),
+                toJsonValue(snapshot.etaSeconds));
+    }
+
+    /**
+     * Returns the current snapshot in the Prometheus text exposition format. Unknown values are omitted.
+     */
+    public String toPrometheus() {
+        Snapshot snapshot = new Snapshot(progress);
+        String label = "{job=\"" + job.replace("\\", "\\\\").replace("\"", "\\\"") + "\"}";
+        StringBuilder text = new StringBuilder();
+        appendMetric(text, "combinations_selected", "Combinations to evaluate", label, snapshot.selected);
+        appendMetric(text, "combinations_finished", "Combinations finished or skipped", label, snapshot.finished);
+        appendMetric(text, "combinations_measured", "Combinations finished and measured", label, snapshot.measured);
+        appendMetric(text, "elapsed_seconds", "Time since the first combination started", label, snapshot.elapsedSeconds);
+        appendMetric(text, "throughput_per_hour", "Measured combinations per hour", label, snapshot.throughput);
+        appendMetric(text, "eta_seconds", "Estimated time until all combinations are finished", label, snapshot.etaSeconds);
+        return text.toString();
+    }
+
+    private static void appendMetric(StringBuilder text, String name, String help, String label, double value) {
+        if (value < 0) {
+            return;
+        }
+        text.append("# HELP ").append(METRIC_PREFIX).append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(METRIC_PREFIX).append(name).append(" gauge\n");
+        text.append(METRIC_PREFIX).append(name).append(label).append(' ');
+        text.append(value == Math.rint(value) ? String.valueOf((long) value) : String.valueOf(value)).append('\n');
+    }
+
+    private static String toJsonValue(double value) {
+        return value < 0 ? "null" : String.format(Locale.ROOT, "%.1f", value);
+    }
+
+    private void write() {
+        try {
+            writeAtomically(jsonFile, toJson());
+            writeAtomically(prometheusFile, toPrometheus());
+        } catch (IOException e) {
+            FeatJAR.log().error(e);
+        }
+    }
+
+    private static void writeAtomically(Path file, String content) throws IOException {
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temporaryFile, content.getBytes(StandardCharsets.UTF_8));
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes a final snapshot and stops the exporter.
+     */
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+        scheduler.shutdownNow();
+        if (writeFiles) {
+            write();
+        }
+    }
+
+    private static final class Snapshot {
+        private final int selected, finished, measured;
+        private final double elapsedSeconds, throughput, etaSeconds;
+
+        private Snapshot(ProgressTracker progress) {
+            synchronized (progress) {
+                selected = progress.getSelectedCount();
+                finished = progress.getFinishedCount();
+                measured = progress.getMeasuredCount();
+                elapsedSeconds = toSeconds(progress.getElapsedTime());
+                throughput = progress.getThroughput();
+                etaSeconds = toSeconds(progress.getEstimatedRemainingTime());
+            }
+        }
+
+        private double getPercent() {
+            return selected == 0 ? 100 : Math.floor(finished * 1000.0 / selected) / 10;
+        }
+
+        private static double toSeconds(long nanos) {
+            return nanos < 0 ? -1 : nanos / 1e9;
+        }
+    }
+}
@@ -20,7 +20,9 @@
  */
 package de.featjar.evaluation.util;
 
+import java.util.BitSet;
 import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Iterates over a given list of options with different ranges.
@@ -29,8 +31,21 @@ import java.util.Iterator;
  */
 public class ProgressTracker implements Iterator<int[]> {
 
+    private static final long ESTIMATE_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
     private int[] sizes, indices;
     private int totalSize, totalIndex, lastIndexChanged;
+    private BitSet selection;
+    private int selectedCount, visitedCount;
+
+    // timing of finished combinations, guarded by this
+    private final BitSet finished = new BitSet();
+    private int finishedCount, measuredCount;
+    private double measuredTime;
+    private double[][] valueTimes;
+    private int[][] valueCounts;
+    private long startTime = -1, currentStartTime = -1;
+    private long estimate = -1, estimateTime;
 
     public ProgressTracker(int... optionRanges) {
         sizes = new int[optionRanges.length];
@@ -48,6 +63,52 @@ public class ProgressTracker implements Iterator<int[]> {
             totalSize *= size;
         }
         assert totalSize >= 1;
+        selectedCount = totalSize;
+        valueTimes = new double[sizes.length][];
+        valueCounts = new int[sizes.length][];
+        for (int i = 0; i < sizes.length; i++) {
+            valueTimes[i] = new double[sizes[i]];
+            valueCounts[i] = new int[sizes[i]];
+        }
+    }
+
+    /**
+     * Restricts the iteration to the combinations with the given total indices, for instance those of a
+     * {@link Shard}. {@link #getLastChanged()} refers to the previously visited combination, so that work for a
+     * common prefix can still be reused. Must be called before the first call of {@link #next()}.
+     *
+     * @param selection the total indices to visit, or {@code null} to visit all combinations
+     */
+    public void setSelection(BitSet selection) {
+        this.selection = selection;
+        selectedCount = selection == null ? totalSize : selection.get(0, totalSize).cardinality();
+    }
+
+    /**
+     * Returns the total indices that are visited, or {@code null} if all combinations are.
+     */
+    public BitSet getSelection() {
+        return selection;
+    }
+
+    /**
+     * Returns the option indices of the combination with the given total index.
+     */
+    public int[] getIndices(int totalIndex) {
+        int[] combination = new int[sizes.length];
+        for (int i = sizes.length - 1; i >= 0; i--) {
+            combination[i] = totalIndex % sizes[i];
+            totalIndex /= sizes[i];
+        }
+        return combination;
+    }
+
+    public int getTotalSize() {
+        return totalSize;
+    }
+
+    public int getTotalIndex() {
+        return totalIndex;
     }
 
     public String nextAndPrint() {
@@ -63,8 +124,15 @@ public class ProgressTracker implements Iterator<int[]> {
             }
         }
         statusMessage.append(
-                String.format("%5.1f", ((Math.floor(((double) (totalIndex + 1) / totalSize) * 1000)) / 10.0)));
+                String.format("%5.1f", ((Math.floor(((double) visitedCount / selectedCount) * 1000)) / 10.0)));
         statusMessage.append('%');
+        if (getThroughput() >= 0) {
+            statusMessage.append(String.format(" %.1f/h", getThroughput()));
+        }
+        long remainingTime = getEstimatedRemainingTime();
+        if (remainingTime >= 0) {
+            statusMessage.append(" ETA ").append(formatDuration(remainingTime));
+        }
         return statusMessage.toString();
     }
 
@@ -78,7 +146,7 @@ public class ProgressTracker implements Iterator<int[]> {
 
     @Override
     public boolean hasNext() {
-        return totalIndex < totalSize - 1;
+        return selection == null ? totalIndex < totalSize - 1 : nextSelected() >= 0;
     }
 
     @Override
@@ -86,6 +154,11 @@ public class ProgressTracker implements Iterator<int[]> {
         if (!hasNext()) {
             return null;
         }
+        finishCurrent();
+        currentStartTime = System.nanoTime();
+        if (selection != null) {
+            return jumpTo(nextSelected());
+        }
         int i = sizes.length - 1;
         for (; i >= 0; i--) {
             final int index = indices[i];
@@ -98,12 +171,194 @@ public class ProgressTracker implements Iterator<int[]> {
             }
         }
         totalIndex++;
+        visitedCount++;
         assert totalIndex >= 0;
         assert totalIndex < totalSize;
         lastIndexChanged = i + 1;
         return indices;
     }
 
+    private int nextSelected() {
+        int next = selection.nextSetBit(totalIndex + 1);
+        return next < totalSize ? next : -1;
+    }
+
+    private int[] jumpTo(int nextIndex) {
+        int[] nextIndices = getIndices(nextIndex);
+        int changed = 0;
+        if (totalIndex >= 0) {
+            while (changed < sizes.length - 1 && nextIndices[changed] == indices[changed]) {
+                changed++;
+            }
+        }
+        System.arraycopy(nextIndices, 0, indices, 0, sizes.length);
+        totalIndex = nextIndex;
+        visitedCount++;
+        lastIndexChanged = changed;
+        return indices;
+    }
+
+    /**
+     * Records the combination returned by the last call of {@link #next()} as finished, using the time since that
+     * call as its duration. Called by {@link #next()}, and should be called once more after the last combination.
+     */
+    public void finishCurrent() {
+        if (currentStartTime >= 0) {
+            finish(totalIndex, System.nanoTime() - currentStartTime);
+            currentStartTime = -1;
+        }
+    }
+
+    /**
+     * Records the combination with the given total index as finished. Can be called from several threads, for
+     * combinations that are not visited through {@link #next()}.
+     *
+     * @param totalIndex the total index of the combination
+     * @param duration the time the combination took in nanoseconds
+     */
+    public synchronized void finish(int totalIndex, long duration) {
+        if (startTime < 0) {
+            startTime = System.nanoTime() - duration;
+        }
+        if (markFinished(totalIndex)) {
+            int[] combination = getIndices(totalIndex);
+            for (int i = 0; i < combination.length; i++) {
+                valueTimes[i][combination[i]] += duration;
+                valueCounts[i][combination[i]]++;
+            }
+            measuredTime += duration;
+            measuredCount++;
+        }
+    }
+
+    /**
+     * Records the combination with the given total index as finished without measuring it, for instance because it
+     * was completed before or by another process. Skipped combinations do not count towards the throughput.
+     */
+    public synchronized void skip(int totalIndex) {
+        markFinished(totalIndex);
+    }
+
+    private boolean markFinished(int totalIndex) {
+        if (finished.get(totalIndex)) {
+            return false;
+        }
+        finished.set(totalIndex);
+        if (selection == null || selection.get(totalIndex)) {
+            finishedCount++;
+        }
+        estimateTime = 0;
+        return true;
+    }
+
+    /**
+     * Returns the number of selected combinations, see {@link #setSelection(BitSet)}.
+     */
+    public int getSelectedCount() {
+        return selectedCount;
+    }
+
+    /**
+     * Returns the number of selected combinations that are finished or skipped.
+     */
+    public synchronized int getFinishedCount() {
+        return finishedCount;
+    }
+
+    /**
+     * Returns the number of combinations whose duration was measured.
+     */
+    public synchronized int getMeasuredCount() {
+        return measuredCount;
+    }
+
+    /**
+     * Returns the time since the first combination started in nanoseconds, or -1 if none finished yet.
+     */
+    public synchronized long getElapsedTime() {
+        return startTime < 0 ? -1 : System.nanoTime() - startTime;
+    }
+
+    /**
+     * Returns the number of measured combinations finished per hour, or -1 if none finished yet.
+     */
+    public synchronized double getThroughput() {
+        long elapsedTime = getElapsedTime();
+        return measuredCount == 0 || elapsedTime <= 0
+                ? -1
+                : measuredCount * (double) TimeUnit.HOURS.toNanos(1) / elapsedTime;
+    }
+
+    /**
+     * Estimates the time until all selected combinations are finished in nanoseconds, or returns -1 if no
+     * combination finished yet.
+     * The duration of a remaining combination is predicted from the mean duration of all finished combinations,
+     * scaled for each option by how much longer or shorter the combinations with the same value of that option took
+     * on average. The sum of these predictions is divided by the number of combinations that were observed to run
+     * at the same time.
+     */
+    public synchronized long getEstimatedRemainingTime() {
+        if (measuredCount == 0) {
+            return -1;
+        }
+        long now = System.nanoTime();
+        if (estimateTime != 0 && now - estimateTime < ESTIMATE_INTERVAL) {
+            return estimate;
+        }
+        double meanTime = measuredTime / measuredCount;
+        double[][] factors = new double[sizes.length][];
+        for (int i = 0; i < sizes.length; i++) {
+            factors[i] = new double[sizes[i]];
+            for (int value = 0; value < sizes[i]; value++) {
+                factors[i][value] = valueCounts[i][value] == 0 || meanTime <= 0
+                        ? 1
+                        : valueTimes[i][value] / valueCounts[i][value] / meanTime;
+            }
+        }
+        double remainingTime = 0;
+        for (int index = nextRemaining(0); index >= 0; index = nextRemaining(index + 1)) {
+            double predictedTime = meanTime;
+            int[] combination = getIndices(index);
+            for (int i = 0; i < combination.length; i++) {
+                predictedTime *= factors[i][combination[i]];
+            }
+            remainingTime += predictedTime;
+        }
+        double parallelism = Math.max(1, measuredTime / Math.max(1, now - startTime));
+        estimate = (long) (remainingTime / parallelism);
+        estimateTime = now;
+        return estimate;
+    }
+
+    private int nextRemaining(int from) {
+        for (int index = from; index < totalSize; index++) {
+            index = finished.nextClearBit(index);
+            if (selection != null) {
+                index = selection.nextSetBit(index);
+                if (index < 0) {
+                    return -1;
+                }
+                if (finished.get(index)) {
+                    continue;
+                }
+            }
+            if (index < totalSize) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Formats a duration in nanoseconds, such as {@code 1d 03:12:05}.
+     */
+    public static String formatDuration(long nanos) {
+        long seconds = TimeUnit.NANOSECONDS.toSeconds(nanos);
+        long days = seconds / 86400;
+        String time = String.format("%02d:%02d:%02d", (seconds / 3600) % 24, (seconds / 60) % 60, seconds % 60);
+        return days > 0 ? days + "d " + time : time;
+    }
+
     public Integer getLastChanged() {
         return lastIndexChanged;
     }
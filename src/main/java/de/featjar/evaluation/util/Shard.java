@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.util;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * One of several disjoint parts of an index space, such that the parts of all shards cover the whole space. The
+ * assignment only depends on the size of the space, the shard count, the strategy, and the costs, so that nodes
+ * evaluating different shards of the same configuration agree on it without communicating.
+ */
+public final class Shard {
+
+    /**
+     * How indices are assigned to shards.
+     */
+    public enum Strategy {
+        /**
+         * Shard {@code i} gets every {@code n}-th index starting at {@code i}.
+         */
+        STRIDED,
+        /**
+         * Each shard gets one contiguous range of indices, so that neighboring combinations share their prefix.
+         */
+        BLOCKED,
+        /**
+         * Indices are assigned in descending order of their costs to the shard with the smallest total cost.
+         */
+        COST
+    }
+
+    private final int index;
+    private final int count;
+    private final Strategy strategy;
+
+    /**
+     * @param index the index of this shard, starting at 0
+     * @param count the number of shards
+     * @param strategy the assignment strategy
+     */
+    public Shard(int index, int count, Strategy strategy) {
+        if (count <= 0 || index < 0 || index >= count) {
+            throw new IllegalArgumentException(String.format("Invalid shard %d of %d", index + 1, count));
+        }
+        this.index = index;
+        this.count = count;
+        this.strategy = strategy;
+    }
+
+    /**
+     * Parses a shard given as {@code i/n} with {@code 1 <= i <= n}.
+     *
+     * @param shard the shard
+     * @param strategy the name of the assignment strategy
+     */
+    public static Shard parse(String shard, String strategy) {
+        int separator = shard.indexOf('/');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Shard must be given as i/n: " + shard);
+        }
+        return new Shard(
+                Integer.parseInt(shard.substring(0, separator).trim()) - 1,
+                Integer.parseInt(shard.substring(separator + 1).trim()),
+                Strategy.valueOf(strategy.trim().toUpperCase(Locale.ROOT)));
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Returns a name for the shard that can be used in file names.
+     */
+    public String getTag() {
+        return "shard-" + (index + 1) + "-of-" + count;
+    }
+
+    /**
+     * Returns the indices of the given space that belong to this shard.
+     *
+     * @param size the size of the space
+     * @param cost the cost of each index, only used by {@link Strategy#COST}
+     */
+    public BitSet select(int size, IntToDoubleFunction cost) {
+        BitSet selection = new BitSet(size);
+        switch (strategy) {
+            case STRIDED:
+                for (int i = index; i < size; i += count) {
+                    selection.set(i);
+                }
+                break;
+            case BLOCKED:
+                selection.set((int) ((long) size * index / count), (int) ((long) size * (index + 1) / count));
+                break;
+            case COST:
+                double[] costs = new double[size];
+                Integer[] order = new Integer[size];
+                for (int i = 0; i < size; i++) {
+                    costs[i] = cost.applyAsDouble(i);
+                    order[i] = i;
+                }
+                // stable, so that indices with equal costs keep their order
+                Arrays.sort(order, Comparator.comparingDouble((Integer i) -> costs[i]).reversed());
+                double[] loads = new double[count];
+                for (int i : order) {
+                    int shard = 0;
+                    for (int s = 1; s < count; s++) {
+                        if (loads[s] < loads[shard]) {
+                            shard = s;
+                        }
+                    }
+                    loads[shard] += costs[i];
+                    if (shard == index) {
+                        selection.set(i);
+                    }
+                }
+                break;
+            default:
+                throw new IllegalStateException(String.valueOf(strategy));
+        }
+        return selection;
+    }
+
+    @Override
+    public String toString() {
+        return (index + 1) + "/" + count + " (" + strategy.name().toLowerCase(Locale.ROOT) + ")";
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.util;
+
+/**
+ * Detects whether a series of measurements has reached a steady state.
+ * The series is considered steady if the coefficient of variation (standard deviation divided by mean) of the
+ * last {@code windowSize} values does not exceed the given threshold.
+ */
+public class SteadyStateDetector {
+
+    private final long[] window;
+    private final double threshold;
+    private int count;
+
+    public SteadyStateDetector(int windowSize, double threshold) {
+        if (windowSize < 2) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid window size %d. Must be larger than 1.", windowSize));
+        }
+        this.window = new long[windowSize];
+        this.threshold = threshold;
+    }
+
+    /**
+     * Adds a measurement.
+     *
+     * @param value the measurement
+     * @return whether the series is steady, including the new value
+     */
+    public synchronized boolean add(long value) {
+        window[count++ % window.length] = value;
+        return isSteady();
+    }
+
+    public synchronized boolean isSteady() {
+        final double coefficientOfVariation = getCoefficientOfVariation();
+        return !Double.isNaN(coefficientOfVariation) && coefficientOfVariation <= threshold;
+    }
+
+    /**
+     * Returns the coefficient of variation of the current window, or {@link Double#NaN} if the window is not
+     * filled yet.
+     */
+    public synchronized double getCoefficientOfVariation() {
+        if (count < window.length) {
+            return Double.NaN;
+        }
+        double sum = 0;
+        for (long value : window) {
+            sum += value;
+        }
+        final double mean = sum / window.length;
+        if (mean == 0) {
+            return 0;
+        }
+        double squaredDeviations = 0;
+        for (long value : window) {
+            squaredDeviations += (value - mean) * (value - mean);
+        }
+        return Math.sqrt(squaredDeviations / (window.length - 1)) / mean;
+    }
+}
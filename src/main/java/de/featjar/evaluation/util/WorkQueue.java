@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2024 FeatJAR-Development-Team
+ *
+ * This file is part of FeatJAR-evaluation.
+ *
+ * evaluation is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <https://github.com/FeatureIDE/FeatJAR-evaluation> for further information.
+ */
+package de.featjar.evaluation.util;
+
+import de.featjar.base.FeatJAR;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A work queue of evaluation cells that is shared by several processes through a directory, without a coordinator.
+ * A process claims a cell by atomically creating its claim file, which contains the id of the worker. Each worker
+ * regularly updates its heartbeat file. A claim whose worker has not updated its heartbeat for longer than the stale
+ * timeout is deleted under a {@link FileLock lock} on the cell, after which the workers compete for the cell again.
+ * Completed cells are marked by a done file.
+ * The clocks of all machines sharing the directory must be roughly synchronized, and the stale timeout must be much
+ * longer than the heartbeat interval.
+ */
+public class WorkQueue implements AutoCloseable {
+
+    private static final String CLAIM_SUFFIX = ".claim";
+    private static final String DONE_SUFFIX = ".done";
+
+    private final Path cellDirectory;
+    private final Path heartbeatFile;
+    private final String workerId;
+    private final long staleTimeout;
+    private final Set<Path> ownClaims = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService heartbeat;
+
+    /**
+     * @param directory the shared directory
+     * @param workerId the unique id of this worker, see {@link #createWorkerId()}
+     * @param staleTimeout the time in milliseconds after which a worker without heartbeat is considered dead
+     */
+    public WorkQueue(Path directory, String workerId, long staleTimeout) throws IOException {
+        this.workerId = workerId;
+        this.staleTimeout = staleTimeout;
+        cellDirectory = directory.resolve("cells");
+        Path workerDirectory = directory.resolve("workers");
+        Files.createDirectories(cellDirectory);
+        Files.createDirectories(workerDirectory);
+        heartbeatFile = workerDirectory.resolve(workerId);
+        beat();
+        heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "work-queue-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1, staleTimeout / 6);
+        heartbeat.scheduleWithFixedDelay(this::beat, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates an id that is unique among all workers, consisting of host name, process id, and a random part.
+     */
+    public static String createWorkerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            host = "unknown";
+        }
+        String id = host + "-" + ProcessHandle.current().pid() + "-"
+                + UUID.randomUUID().toString().substring(0, 8);
+        return id.replaceAll("[^\\w.-]", "_");
+    }
+
+    public String getWorkerId() {
+        return workerId;
+    }
+
+    public boolean isDone(String cell) {
+        return Files.exists(getFile(cell, DONE_SUFFIX));
+    }
+
+    /**
+     * Returns whether the given cell is claimed by another worker that is still alive.
+     */
+    public boolean isClaimedByOther(String cell) {
+        String owner = readOwner(getFile(cell, CLAIM_SUFFIX));
+        return owner != null && !owner.equals(workerId) && isAlive(owner, getFile(cell, CLAIM_SUFFIX));
+    }
+
+    /**
+     * Tries to claim the given cell for this worker. A cell that is claimed by a dead worker is taken over.
+     *
+     * @return whether this worker owns the cell and should evaluate it
+     */
+    public boolean claim(String cell) throws IOException {
+        Path claimFile = getFile(cell, CLAIM_SUFFIX);
+        while (!isDone(cell)) {
+            try (FileChannel channel = FileChannel.open(claimFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                ByteBuffer owner = ByteBuffer.wrap(workerId.getBytes(StandardCharsets.UTF_8));
+                while (owner.hasRemaining()) {
+                    channel.write(owner);
+                }
+                channel.force(true);
+                ownClaims.add(claimFile);
+                return true;
+            } catch (FileAlreadyExistsException e) {
+                String owner = readOwner(claimFile);
+                if (workerId.equals(owner)) {
+                    return true;
+                }
+                if (owner == null && !Files.exists(claimFile)) {
+                    // released in the meantime
+                    continue;
+                }
+                if (isAlive(owner, claimFile)) {
+                    return false;
+                }
+                reclaim(cell, claimFile, owner);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Deletes the claim of a dead worker. The claim is checked again while holding a lock on the cell, so that a
+     * claim that was taken over by another worker in the meantime is not deleted. Afterwards, all workers compete
+     * for the cell by creating its claim file again.
+     */
+    private synchronized void reclaim(String cell, Path claimFile, String staleOwner) throws IOException {
+        Path lockFile = claimFile.resolveSibling(claimFile.getFileName() + ".lock");
+        try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                FileLock lock = channel.lock()) {
+            String owner = readOwner(claimFile);
+            if (Objects.equals(owner, staleOwner) && !isAlive(owner, claimFile)) {
+                Files.deleteIfExists(claimFile);
+                FeatJAR.log().info("Reclaiming %s from %s", cell, staleOwner);
+            }
+        }
+    }
+
+    /**
+     * Marks the given cell as done and releases its claim.
+     */
+    public void complete(String cell) throws IOException {
+        Files.write(getFile(cell, DONE_SUFFIX), workerId.getBytes(StandardCharsets.UTF_8));
+        release(getFile(cell, CLAIM_SUFFIX));
+    }
+
+    /**
+     * Stops the heartbeat and releases all claims of this worker that are not done, so that other workers can
+     * take them over immediately.
+     */
+    @Override
+    public void close() {
+        heartbeat.shutdownNow();
+        for (Path claimFile : ownClaims) {
+            release(claimFile);
+        }
+        try {
+            Files.deleteIfExists(heartbeatFile);
+        } catch (IOException e) {
+            FeatJAR.log().error(e);
+        }
+    }
+
+    private void release(Path claimFile) {
+        if (ownClaims.remove(claimFile) && workerId.equals(readOwner(claimFile))) {
+            try {
+                Files.deleteIfExists(claimFile);
+            } catch (IOException e) {
+                FeatJAR.log().error(e);
+            }
+        }
+    }
+
+    private void beat() {
+        try {
+            Files.write(heartbeatFile, Long.toString(System.currentTimeMillis()).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            FeatJAR.log().error(e);
+        }
+    }
+
+    private boolean isAlive(String owner, Path claimFile) {
+        long now = System.currentTimeMillis();
+        try {
+            if (owner == null || owner.isEmpty()) {
+                // the owner is still writing its claim
+                return now - Files.getLastModifiedTime(claimFile).toMillis() < staleTimeout;
+            }
+            FileTime lastBeat = Files.getLastModifiedTime(heartbeatFile.resolveSibling(owner));
+            return now - lastBeat.toMillis() < staleTimeout;
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            FeatJAR.log().error(e);
+            return true;
+        }
+    }
+
+    private static String readOwner(Path claimFile) {
+        try {
+            return new String(Files.readAllBytes(claimFile), StandardCharsets.UTF_8).trim();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private Path getFile(String cell, String suffix) {
+        String name = cell.replaceAll("[^\\w.-]", "_");
+        return cellDirectory.resolve(name + "-" + Integer.toHexString(cell.hashCode()) + suffix);
+    }
+}